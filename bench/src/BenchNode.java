@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Synthetic Subsystem for benchmarking. Every cycle it updates a counter,
+ * sends a configurable number of data and action requests to the nodes it
+ * owns, and answers the requests its owner sends it.
+ */
+class BenchNode extends Subsystem {
+    /**
+     * Data requests and action requests sent per cycle each.
+     */
+    private final int traffic;
+    /**
+     * Owned nodes kept in an array so that sending doesn't iterate a Set.
+     */
+    private BenchNode[] children = new BenchNode[0];
+    private long value = 0;
+    private long total = 0;
+
+    BenchNode(Subsystem owner, int traffic) {
+        super(owner);
+        this.traffic = traffic;
+        onDataRequest(Data.VALUE, message -> message.setLong(value));
+        onActionRequest(Action.ADD, message -> total += message.getLong());
+    }
+
+    /**
+     * @param child Node to own and send requests to
+     */
+    void add(BenchNode child) {
+        addSubsystem(child);
+        children = Arrays.copyOf(children, children.length + 1);
+        children[children.length - 1] = child;
+    }
+
+    @Override
+    void updateSelfData() {
+        value++;
+    }
+
+    @Override
+    void sendDataRequest() {
+        if (children.length == 0)
+            return;
+        for (int i = 0; i < traffic; i++)
+            children[i % children.length].request(lease(Data.VALUE));
+    }
+
+    @Override
+    void sendActionRequest() {
+        if (children.length == 0)
+            return;
+        for (int i = 0; i < traffic; i++) {
+            Msg message = lease(Action.ADD);
+            message.setLong(value);
+            children[i % children.length].request(message);
+        }
+    }
+
+    /**
+     * @return Sum of everything requested of this node, so the work can't be
+     * optimized away
+     */
+    long getTotal() {
+        return total;
+    }
+
+    enum Data {VALUE}
+    enum Action {ADD}
+}
@@ -0,0 +1,52 @@
+/**
+ * Ways of arranging a synthetic Subsystem hierarchy.
+ */
+enum HierarchyShape {
+    /**
+     * Every node owns the next one, as deep as possible.
+     */
+    CHAIN {
+        int ownerOf(int index) {
+            return index - 1;
+        }
+    },
+    /**
+     * One root owns every other node, as wide as possible.
+     */
+    FAN_OUT {
+        int ownerOf(int index) {
+            return 0;
+        }
+    },
+    /**
+     * Every node owns up to four others, filled level by level.
+     */
+    BALANCED {
+        int ownerOf(int index) {
+            return (index - 1) / 4;
+        }
+    };
+
+    /**
+     * @param index Position of a node other than the root (index 0)
+     * @return Position of the node which owns it
+     */
+    abstract int ownerOf(int index);
+
+    /**
+     * Builds a hierarchy of this shape.
+     *
+     * @param nodes   Total number of nodes
+     * @param traffic Data and action requests each node sends per cycle
+     * @return The root node
+     */
+    BenchNode build(int nodes, int traffic) {
+        BenchNode[] built = new BenchNode[nodes];
+        built[0] = new BenchNode(null, traffic);
+        for (int i = 1; i < nodes; i++) {
+            BenchNode owner = built[ownerOf(i)];
+            owner.add(built[i] = new BenchNode(owner, traffic));
+        }
+        return built[0];
+    }
+}
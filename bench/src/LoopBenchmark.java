@@ -0,0 +1,94 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures the cost of <code>Manager.loop()</code> over synthetic hierarchies
+ * of every HierarchyShape and a range of sizes. For each case, the Manager is
+ * warmed up and then timed over a fixed number of cycles, and the time per
+ * cycle and bytes allocated per cycle by the loop thread are printed as one
+ * table row.
+ *
+ * <p>Arguments, all optional and in any order:
+ * <code>sizes=10,100,1000,10000</code>, <code>traffic=1</code> (data and
+ * action requests per node per cycle), <code>warmup=20000</code>, and
+ * <code>cycles=20000</code>. Warm-up needs to be long enough for the JIT to
+ * finish compiling the loop, or its allocations show up in the results.</p>
+ */
+public class LoopBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    /**
+     * Results of the benchmarked work, kept so that it can't be optimized
+     * away.
+     */
+    static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] sizes = {10, 100, 1000, 10000};
+        int traffic = 1;
+        int warmup = 20000;
+        int cycles = 20000;
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2)
+                throw new IllegalArgumentException("Expected name=value: " + arg);
+            switch (option[0]) {
+                case "sizes":
+                    String[] parts = option[1].split(",");
+                    sizes = new int[parts.length];
+                    for (int i = 0; i < parts.length; i++)
+                        sizes[i] = Integer.parseInt(parts[i].trim());
+                    break;
+                case "traffic":
+                    traffic = Integer.parseInt(option[1]);
+                    break;
+                case "warmup":
+                    warmup = Integer.parseInt(option[1]);
+                    break;
+                case "cycles":
+                    cycles = Integer.parseInt(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+
+        final int[] finalSizes = sizes;
+        final int finalTraffic = traffic, finalWarmup = warmup, finalCycles = cycles;
+        // hierarchy verification recurses, so deep chains need a large stack
+        Thread thread = new Thread(null, () -> run(finalSizes, finalTraffic, finalWarmup, finalCycles),
+                "benchmark", 1L << 28);
+        thread.start();
+        thread.join();
+    }
+
+    private static void run(int[] sizes, int traffic, int warmup, int cycles) {
+        System.out.println(String.format(Locale.ROOT, "%-9s %7s %7s %12s %12s %12s %12s",
+                "shape", "nodes", "traffic", "ns/tick", "p50 ns", "p99 ns", "bytes/tick"));
+        for (HierarchyShape shape : HierarchyShape.values()) {
+            for (int size : sizes) {
+                BenchNode root = shape.build(size, traffic);
+                Manager manager = new Manager(root);
+                for (int i = 0; i < warmup; i++)
+                    manager.loop();
+
+                LatencyHistogram ticks = new LatencyHistogram();
+                long thread = Thread.currentThread().getId();
+                long startBytes = THREADS.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                for (int i = 0; i < cycles; i++) {
+                    long tick = System.nanoTime();
+                    manager.loop();
+                    ticks.record(System.nanoTime() - tick);
+                }
+                long elapsed = System.nanoTime() - start;
+                long bytes = THREADS.getThreadAllocatedBytes(thread) - startBytes;
+
+                System.out.println(String.format(Locale.ROOT, "%-9s %7d %7d %12.1f %12d %12d %12.2f",
+                        shape, size, traffic, (double) elapsed / cycles,
+                        ticks.getPercentile(50), ticks.getPercentile(99), (double) bytes / cycles));
+                sink += root.getTotal();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * One physical output (such as a motor power or a servo target) owned by a
+ * Subsystem. The Subsystem stages a value during <code>publishControl</code>,
+ * and after every Subsystem has published, the Manager's output stage writes
+ * the staged values which moved by more than the deadband since they were
+ * last written, all in one batch. Staging the same value every cycle is
+ * therefore cheap. Get one with <code>Subsystem.actuator</code>.
+ */
+public final class Actuator {
+    private final Subsystem owner;
+    private final int port;
+    private final double deadband;
+    private double staged;
+    private double written;
+    private boolean hasStaged = false;
+    private boolean hasWritten = false;
+
+    Actuator(Subsystem owner, int port, double deadband) {
+        if (port < 0)
+            throw new IllegalArgumentException("Port must not be negative.");
+        if (!(deadband >= 0))
+            throw new IllegalArgumentException("Deadband must not be negative.");
+        this.owner = owner;
+        this.port = port;
+        this.deadband = deadband;
+    }
+
+    /**
+     * Stages the output to write at the end of this cycle's actuation.
+     *
+     * @param value New output
+     */
+    public void set(double value) {
+        staged = value;
+        hasStaged = true;
+    }
+
+    /**
+     * @return Most recently staged output, or 0 if there is none yet
+     */
+    public double getStaged() {
+        return staged;
+    }
+
+    /**
+     * @return Output most recently written to the hardware, or 0 if there is
+     * none yet
+     */
+    public double getWritten() {
+        return written;
+    }
+
+    /**
+     * @return Port the actuator is written to
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return Smallest change in output which is written
+     */
+    public double getDeadband() {
+        return deadband;
+    }
+
+    /**
+     * @return Subsystem which owns this actuator
+     */
+    public Subsystem getOwner() {
+        return owner;
+    }
+
+    /**
+     * Writes the staged output if it needs to be. The first staged value is
+     * always written, and so is a change to exactly 0 so that stopping is
+     * never swallowed by the deadband.
+     *
+     * @param driver Driver to write to
+     * @return Whether anything was written
+     */
+    boolean flushTo(ActuatorDriver driver) {
+        if (!hasStaged)
+            return false;
+        if (hasWritten && (staged == written
+                || staged != 0 && Math.abs(staged - written) <= deadband))
+            return false;
+        driver.write(port, staged);
+        written = staged;
+        hasWritten = true;
+        return true;
+    }
+}
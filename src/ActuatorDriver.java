@@ -0,0 +1,22 @@
+/**
+ * Connection to the physical actuators, used by the Manager's output stage to
+ * write the values Subsystems stage on their Actuators. The writes for one
+ * loop cycle are all made and then followed by a single flush, so a driver
+ * which can batch writes (for example into one bus transaction) should buffer
+ * them until <code>flush</code>.
+ */
+public interface ActuatorDriver {
+    /**
+     * Sets the output of one actuator.
+     *
+     * @param port  Port of the actuator
+     * @param value New output
+     */
+    void write(int port, double value);
+
+    /**
+     * Sends any buffered writes. Only called on cycles where something was
+     * written.
+     */
+    void flush();
+}
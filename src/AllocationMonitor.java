@@ -0,0 +1,71 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Strict-mode check which measures how many bytes the loop thread allocates
+ * during each <code>Manager.loop()</code> call and fails once warm-up is over
+ * if anything was allocated. This is meant for test runs to catch changes
+ * which bring garbage (and with it, garbage collection pauses) back into the
+ * steady-state loop.
+ */
+final class AllocationMonitor {
+    private final com.sun.management.ThreadMXBean threads;
+    /**
+     * Number of loop cycles which may allocate while caches, pools, and lazily
+     * sized buffers fill up.
+     */
+    private final int warmupCycles;
+    /**
+     * Bytes reported between two back-to-back measurements, which is the
+     * measurement's own allocation and is subtracted from every reading.
+     */
+    private final long overhead;
+    private long cycles = 0;
+    private long startBytes;
+
+    /**
+     * @param warmupCycles Number of cycles to allow allocation in
+     * @throws UnsupportedOperationException If this JVM can't measure per-
+     *                                       thread allocation.
+     */
+    AllocationMonitor(int warmupCycles) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            throw new UnsupportedOperationException(
+                    "Per-thread allocation counting is not available.");
+        threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported())
+            throw new UnsupportedOperationException(
+                    "Per-thread allocation counting is not supported.");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        this.warmupCycles = warmupCycles;
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            long before = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - before);
+        }
+        this.overhead = overhead;
+    }
+
+    /**
+     * Called right before a loop cycle.
+     */
+    void before() {
+        startBytes = allocatedBytes();
+    }
+
+    /**
+     * Called right after a loop cycle.
+     *
+     * @throws IllegalStateException If the cycle allocated after warm-up.
+     */
+    void after() {
+        long allocated = allocatedBytes() - startBytes - overhead;
+        if (++cycles > warmupCycles && allocated > 0)
+            throw new IllegalStateException("Manager.loop() allocated "
+                    + allocated + " bytes on cycle " + cycles + ".");
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
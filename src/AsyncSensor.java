@@ -0,0 +1,161 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base for sensor Subsystems whose hardware reads are too slow to do on the
+ * loop thread (such as I2C, serial, or USB devices). Each one runs its reads
+ * on its own sampler thread and publishes them into a lock-free seqlock slot.
+ * During the basic data update, the loop thread just copies out the latest
+ * sample and its timestamp, so a slow read never holds up a loop cycle.
+ *
+ * <p>Samplers are started by <code>Manager.init()</code>. Sample timestamps
+ * come from <code>System.nanoTime()</code> on the sampler thread rather than
+ * from the Manager's clock, since the reads happen in real time.</p>
+ */
+public abstract class AsyncSensor extends Subsystem {
+    private final SeqlockSlot slot;
+    /**
+     * Latest sample copied out on the loop thread.
+     */
+    private final double[] sample;
+    /**
+     * Buffer the sampler thread reads the hardware into.
+     */
+    private final double[] acquired;
+    private final long periodNanos;
+    private long sampleTime = 0;
+    private long lastWrites = 0;
+    private boolean fresh = false;
+    private volatile boolean sampling = false;
+    private volatile long errors = 0;
+    private Thread thread;
+
+    /**
+     * @param owner       The Subsystem which holds this Subsystem in its
+     *                    subsystems Set
+     * @param width       Number of values in each sample
+     * @param periodNanos Time between the starts of samples, or 0 to sample
+     *                    back to back
+     */
+    public AsyncSensor(Subsystem owner, int width, long periodNanos) {
+        super(owner);
+        slot = new SeqlockSlot(width);
+        sample = new double[width];
+        acquired = new double[width];
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Extending-class-implemented function which reads the hardware. This
+     * runs on the sampler thread, so it may block, but it must not touch
+     * anything the loop thread uses except through its <code>values</code>.
+     *
+     * @param values Array to put the sample's values into
+     * @throws Exception If the read failed, in which case the sample is
+     *                   dropped and counted as an error.
+     */
+    abstract void acquire(double[] values) throws Exception;
+
+    /**
+     * Copies in the latest sample and then calls
+     * <code>updateFromSample</code>. The sample goes through
+     * <code>input</code> so that it is recorded and replayed with the rest of
+     * the loop's inputs.
+     */
+    @Override
+    final void updateSelfData() {
+        long writes = slot.getWrites();
+        if (writes > 0 && !isReplaying())
+            sampleTime = slot.read(sample);
+        fresh = input(writes != lastWrites ? 1 : 0) != 0;
+        lastWrites = writes;
+        sampleTime = input(sampleTime);
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = input(sample[i]);
+        updateFromSample();
+    }
+
+    /**
+     * Extending-class-implemented function which takes the place of
+     * <code>updateSelfData</code> and can use the freshly copied sample.
+     */
+    void updateFromSample() {
+    }
+
+    /**
+     * @param index Which value of the sample to get
+     * @return Value from the latest sample, or 0 if there hasn't been one
+     */
+    public double getSample(int index) {
+        return sample[index];
+    }
+
+    /**
+     * @return <code>System.nanoTime()</code> at the end of the read which
+     * produced the latest sample
+     */
+    public long getSampleTime() {
+        return sampleTime;
+    }
+
+    /**
+     * @return Whether a new sample came in since the previous loop cycle
+     */
+    public boolean isSampleFresh() {
+        return fresh;
+    }
+
+    /**
+     * @return Number of reads which threw
+     */
+    public long getSampleErrors() {
+        return errors;
+    }
+
+    /**
+     * Starts the sampler thread if it isn't running.
+     */
+    public synchronized void startSampling() {
+        if (sampling)
+            return;
+        sampling = true;
+        thread = new Thread(this::sample, getClass().getSimpleName() + "-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the sampler thread after its current read and waits for it.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void stopSampling() throws InterruptedException {
+        sampling = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    private void sample() {
+        long next = System.nanoTime();
+        while (sampling) {
+            try {
+                acquire(acquired);
+                slot.write(acquired, System.nanoTime());
+            } catch (InterruptedException e) {
+                if (!sampling)
+                    return;
+                errors++;
+            } catch (Exception e) {
+                errors++;
+            }
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+            else
+                next = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Memory-mapped file which mirrors selected values at the end of every loop
+ * cycle so that other processes on the same machine (dashboards, loggers)
+ * can map the same file and read live state without asking the robot process
+ * for anything. Each value lives at a fixed offset with its own seqlock, so
+ * a reader never sees a half-written value and the loop never waits for
+ * readers. Values which haven't changed since the last cycle aren't
+ * rewritten. BlackboardReader reads the file from Java.
+ *
+ * <p>The file is little-endian. It starts with the int <code>MAGIC</code>,
+ * the int <code>VERSION</code>, the int number of values, the int offset of
+ * the first value, the long number of the last published cycle, and the int
+ * 1 while the Manager is publishing (0 once it stops). Then, starting at
+ * <code>DIRECTORY_OFFSET</code>, each value's type (<code>LONG</code> or
+ * <code>DOUBLE</code>) is listed as a byte followed by its name as a short
+ * length and that many UTF-8 bytes. The values start at the next multiple of
+ * 64, 16 bytes each: a long sequence number which is odd while the value is
+ * being written, then the long value or the raw bits of the double
+ * value.</p>
+ */
+final class Blackboard {
+    static final int MAGIC = 0x46544242;
+    static final int VERSION = 1;
+    static final int COUNT_OFFSET = 8;
+    static final int VALUES_OFFSET = 12;
+    static final int CYCLE_OFFSET = 16;
+    static final int LIVE_OFFSET = 24;
+    static final int DIRECTORY_OFFSET = 32;
+    static final int VALUE_BYTES = 16;
+    static final byte LONG = 'L';
+    static final byte DOUBLE = 'D';
+
+    private final MappedByteBuffer buffer;
+    private final LongSupplier[] longSources;
+    private final DoubleSupplier[] doubleSources;
+    /**
+     * Raw bits of each value as last written.
+     */
+    private final long[] written;
+    private final int valuesStart;
+
+    /**
+     * Creates the file and lays out the values. An existing file is replaced
+     * by atomically renaming a fully laid out new one over it, never
+     * truncated, so readers which still have the old file mapped keep reading
+     * it safely and see it marked as no longer live.
+     *
+     * @param file   File to map
+     * @param fields Values to mirror, in the order they are laid out
+     * @throws IOException If the file can't be created or mapped.
+     */
+    Blackboard(File file, List<TelemetryField> fields) throws IOException {
+        int count = fields.size();
+        longSources = new LongSupplier[count];
+        doubleSources = new DoubleSupplier[count];
+        written = new long[count];
+        byte[][] names = new byte[count][];
+        int directoryEnd = DIRECTORY_OFFSET;
+        for (int i = 0; i < count; i++) {
+            longSources[i] = fields.get(i).longSource;
+            doubleSources[i] = fields.get(i).doubleSource;
+            names[i] = fields.get(i).name.getBytes(StandardCharsets.UTF_8);
+            directoryEnd += 3 + names[i].length;
+        }
+        valuesStart = (directoryEnd + 63) & ~63;
+        int size = valuesStart + count * VALUE_BYTES;
+
+        // the board is built in a new file and then renamed over the old one,
+        // so readers still mapping an earlier board keep that file (marked as
+        // no longer live) instead of having it truncated under them
+        File directory = file.getAbsoluteFile().getParentFile();
+        File building = File.createTempFile(file.getName() + ".", ".tmp", directory);
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(building, "rw")) {
+                raf.setLength(size);
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            layOut(names);
+            Files.move(building.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            building.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the header, directory, and first values into a new file.
+     */
+    private void layOut(byte[][] names) {
+        int count = names.length;
+        buffer.position(DIRECTORY_OFFSET);
+        for (int i = 0; i < count; i++)
+            buffer.put(longSources[i] != null ? LONG : DOUBLE)
+                    .putShort((short) names[i].length).put(names[i]);
+        for (int i = 0; i < count; i++)
+            write(i, bits(i));
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putInt(VALUES_OFFSET, valuesStart);
+        buffer.putLong(CYCLE_OFFSET, -1);
+        buffer.putInt(LIVE_OFFSET, 1);
+        buffer.putInt(4, VERSION);
+        // the magic number goes last so readers never see a partial layout
+        Fences.storeFence();
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * Rewrites every value which changed and then the cycle number.
+     *
+     * @param cycle Number of the cycle which just finished
+     */
+    void publish(long cycle) {
+        for (int i = 0; i < written.length; i++) {
+            long bits = bits(i);
+            if (bits != written[i])
+                write(i, bits);
+        }
+        buffer.putLong(CYCLE_OFFSET, cycle);
+    }
+
+    /**
+     * Marks the file as no longer being published to.
+     */
+    void close() {
+        buffer.putInt(LIVE_OFFSET, 0);
+        buffer.force();
+    }
+
+    private long bits(int index) {
+        return longSources[index] != null ? longSources[index].getAsLong()
+                : Double.doubleToRawLongBits(doubleSources[index].getAsDouble());
+    }
+
+    private void write(int index, long bits) {
+        int offset = valuesStart + index * VALUE_BYTES;
+        long sequence = buffer.getLong(offset);
+        buffer.putLong(offset, sequence + 1);
+        Fences.storeFence();
+        buffer.putLong(offset + 8, bits);
+        Fences.storeFence();
+        buffer.putLong(offset, sequence + 2);
+        written[index] = bits;
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the values a Manager mirrors into a blackboard file, from any process
+ * on the same machine. The file is mapped once, and after that every read is
+ * just a few memory loads, retried if the value was being written at the
+ * same time. Reading never affects the robot process.
+ */
+public final class BlackboardReader {
+    private final MappedByteBuffer buffer;
+    private final String[] names;
+    private final boolean[] doubles;
+    private final int valuesStart;
+
+    /**
+     * Maps a blackboard file and reads its layout.
+     *
+     * @param file File given to <code>Manager.startBlackboard</code>
+     * @throws IOException If the file can't be mapped or isn't a blackboard.
+     */
+    public BlackboardReader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < Blackboard.DIRECTORY_OFFSET || buffer.getInt(0) != Blackboard.MAGIC)
+            throw new IOException(file + " is not a blackboard file.");
+        if (buffer.getInt(4) != Blackboard.VERSION)
+            throw new IOException(file + " has unsupported version " + buffer.getInt(4) + ".");
+        names = new String[buffer.getInt(Blackboard.COUNT_OFFSET)];
+        doubles = new boolean[names.length];
+        valuesStart = buffer.getInt(Blackboard.VALUES_OFFSET);
+        buffer.position(Blackboard.DIRECTORY_OFFSET);
+        for (int i = 0; i < names.length; i++) {
+            doubles[i] = buffer.get() == Blackboard.DOUBLE;
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return Number of values in the file
+     */
+    public int getValueCount() {
+        return names.length;
+    }
+
+    /**
+     * @param index Position of a value
+     * @return Name of the value
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param index Position of a value
+     * @return Whether the value is a double rather than a long
+     */
+    public boolean isDouble(int index) {
+        return doubles[index];
+    }
+
+    /**
+     * @param name Name of a value
+     * @return Position of the value, to be looked up once and then reused
+     * @throws IllegalArgumentException If there is no such value.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        throw new IllegalArgumentException("No blackboard value named " + name);
+    }
+
+    /**
+     * @param index Position of a long value
+     * @return The value as of the latest write
+     */
+    public long getLong(int index) {
+        int offset = valuesStart + index * Blackboard.VALUE_BYTES;
+        while (true) {
+            long sequence = buffer.getLong(offset);
+            if ((sequence & 1) != 0)
+                continue;
+            Fences.loadFence();
+            long value = buffer.getLong(offset + 8);
+            Fences.loadFence();
+            if (buffer.getLong(offset) == sequence)
+                return value;
+        }
+    }
+
+    /**
+     * @param index Position of a double value
+     * @return The value as of the latest write
+     */
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    /**
+     * @return Number of the last loop cycle published, or -1 if there hasn't
+     * been one
+     */
+    public long getCycle() {
+        return buffer.getLong(Blackboard.CYCLE_OFFSET);
+    }
+
+    /**
+     * @return Whether the Manager is still publishing to the file
+     */
+    public boolean isLive() {
+        return buffer.getInt(Blackboard.LIVE_OFFSET) != 0;
+    }
+}
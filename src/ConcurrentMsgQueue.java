@@ -0,0 +1,84 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free, multiple-producer single-consumer queue of messages.
+ * Any number of threads may add messages at once, while only one thread at a
+ * time (the loop thread or whichever pool thread is running the owning
+ * Subsystem) takes them out. When the queue is full, new messages are
+ * rejected and counted instead of blocking the producer.
+ */
+final class ConcurrentMsgQueue {
+    private final AtomicReferenceArray<Msg> slots;
+    private final int mask;
+    /**
+     * Total number of slots claimed by producers.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Total number of messages taken out by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Number of messages turned away because the queue was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of waiting messages, rounded up to a power
+     *                 of two
+     */
+    ConcurrentMsgQueue(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds a message from any thread without locking.
+     *
+     * @param message Message to add
+     * @return Whether the message was added (false if the queue was full)
+     */
+    boolean offer(Msg message) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) claimed & mask, message);
+        return true;
+    }
+
+    /**
+     * Removes the oldest message. A message whose producer has claimed a slot
+     * but not finished storing it is left for the next call.
+     *
+     * @return The oldest fully added message, or null if there are none
+     */
+    Msg poll() {
+        long current = head.get();
+        int index = (int) current & mask;
+        Msg message = slots.get(index);
+        if (message == null)
+            return null;
+        slots.lazySet(index, null);
+        head.lazySet(current + 1);
+        return message;
+    }
+
+    boolean isEmpty() {
+        return slots.get((int) head.get() & mask) == null;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
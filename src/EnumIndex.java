@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+/**
+ * Small map from enum constants to values, backed by one array per enum type
+ * indexed by ordinal. Lookups are a short scan over the (usually one or two)
+ * enum types followed by an array load, and never allocate. Keys of any enum
+ * type may be mixed.
+ *
+ * @param <V> Type of the stored values
+ */
+final class EnumIndex<V> {
+    private Class<?>[] types = new Class<?>[0];
+    private Object[][] values = new Object[0][];
+
+    /**
+     * @param key Enum constant to look up, may be null
+     * @return The value stored for <code>key</code>, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(Enum key) {
+        if (key == null)
+            return null;
+        Class<?> type = key.getDeclaringClass();
+        for (int i = 0; i < types.length; i++)
+            if (types[i] == type)
+                return (V) values[i][key.ordinal()];
+        return null;
+    }
+
+    /**
+     * Stores a value for an enum constant, replacing any previous value.
+     *
+     * @param key   Enum constant to store the value for
+     * @param value Value to store
+     */
+    void put(Enum key, V value) {
+        Class<?> type = key.getDeclaringClass();
+        int index = 0;
+        while (index < types.length && types[index] != type)
+            index++;
+        if (index == types.length) {
+            types = Arrays.copyOf(types, index + 1);
+            values = Arrays.copyOf(values, index + 1);
+            types[index] = type;
+            values[index] = new Object[type.getEnumConstants().length];
+        }
+        values[index][key.ordinal()] = value;
+    }
+
+    /**
+     * @return Every enum type which has had a value stored for one of its
+     * constants
+     */
+    Class<?>[] getTypes() {
+        return types.clone();
+    }
+}
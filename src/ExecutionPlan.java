@@ -0,0 +1,145 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flat, immutable ordering of a verified Subsystem hierarchy. The Manager
+ * compiles one of these at construction so that each loop cycle only walks
+ * dense arrays instead of iterating over the hierarchy's Sets. Owned
+ * Subsystems are taken in the order they were added, so the same hierarchy
+ * always compiles to the same plan (and the same plan indices).
+ */
+final class ExecutionPlan {
+    /**
+     * All Subsystems with every Subsystem appearing after all of the
+     * Subsystems it owns. Used for the basic data update.
+     */
+    final Subsystem[] postOrder;
+    /**
+     * All Subsystems ordered by depth in the hierarchy (top-level Subsystems
+     * first). Used for the phases which may run in any order.
+     */
+    final Subsystem[] flat;
+    /**
+     * All Subsystems split up by depth in the hierarchy. The first level holds
+     * the top-level Subsystems, the second holds the Subsystems they own, and
+     * so on. Used for the level-by-level cascade of action requests.
+     */
+    final Subsystem[][] levels;
+    /**
+     * For each phase (by ordinal), the Subsystems to run it on when it's run
+     * outside of the action request cascade. Phases which call an overridable
+     * method only include the Subsystems whose class actually overrides it, in
+     * post-order for the basic data update and in <code>flat</code> order
+     * otherwise.
+     */
+    final Subsystem[][] phases;
+    /**
+     * The Subsystems in each of <code>levels</code> which override
+     * <code>sendActionRequest</code>.
+     */
+    final Subsystem[][] actionSenders;
+
+    /**
+     * Compiles the plan for the given top-level Subsystems.
+     *
+     * @param topSubsystems Top-level Subsystems which have already been
+     *                      verified.
+     * @throws IllegalArgumentException If any Subsystem is reachable more than
+     *                                  once.
+     */
+    ExecutionPlan(Subsystem... topSubsystems) {
+        Set<Subsystem> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Subsystem[]> levels = new ArrayList<>();
+        List<Subsystem> level = new ArrayList<>(Arrays.asList(topSubsystems));
+        int count = 0;
+        while (!level.isEmpty()) {
+            List<Subsystem> next = new ArrayList<>();
+            for (Subsystem subsystem : level) {
+                if (!seen.add(subsystem))
+                    throw new IllegalArgumentException(
+                            "Subsystem is owned more than once: " + subsystem);
+                next.addAll(subsystem.getDirectSubsystems());
+            }
+            levels.add(level.toArray(new Subsystem[0]));
+            count += level.size();
+            level = next;
+        }
+        this.levels = levels.toArray(new Subsystem[0][]);
+        this.flat = new Subsystem[count];
+        int index = 0;
+        for (Subsystem[] subsystems : this.levels) {
+            System.arraycopy(subsystems, 0, flat, index, subsystems.length);
+            index += subsystems.length;
+        }
+
+        // reversing an iterative pre-order walk which visits owned Subsystems
+        // in reverse order gives a post-order walk without risking the stack
+        this.postOrder = new Subsystem[count];
+        ArrayDeque<Subsystem> stack = new ArrayDeque<>();
+        ArrayDeque<Subsystem> reverse = new ArrayDeque<>();
+        for (Subsystem subsystem : topSubsystems)
+            stack.push(subsystem);
+        while (!stack.isEmpty()) {
+            Subsystem subsystem = stack.pop();
+            reverse.push(subsystem);
+            for (Subsystem owned : subsystem.getDirectSubsystems())
+                stack.push(owned);
+        }
+        int post = 0;
+        while (!reverse.isEmpty())
+            postOrder[post++] = reverse.pop();
+
+        phases = new Subsystem[Phase.values().length][];
+        for (Phase phase : Phase.values())
+            phases[phase.ordinal()] = phase.hook == null ? flat
+                    : overriding(phase == Phase.UPDATE_SELF_DATA ? postOrder : flat, phase.hook);
+        actionSenders = new Subsystem[this.levels.length][];
+        for (int i = 0; i < actionSenders.length; i++)
+            actionSenders[i] = overriding(this.levels[i], Phase.SEND_ACTION_REQUEST.hook);
+    }
+
+    /**
+     * Filters Subsystems down to the ones whose class overrides a method, so
+     * that empty default methods don't get called every cycle.
+     *
+     * @param subsystems Subsystems to filter, keeping their order
+     * @param hook       Name of a method declared in Subsystem with no
+     *                   parameters
+     * @return The Subsystems overriding the method
+     */
+    private static Subsystem[] overriding(Subsystem[] subsystems, String hook) {
+        List<Subsystem> result = new ArrayList<>();
+        for (Subsystem subsystem : subsystems)
+            if (overrides(subsystem.getClass(), hook))
+                result.add(subsystem);
+        return result.toArray(new Subsystem[0]);
+    }
+
+    /**
+     * Checks whether any class between <code>type</code> and Subsystem
+     * declares the given method.
+     */
+    private static boolean overrides(Class<?> type, String hook) {
+        for (; type != Subsystem.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod(hook);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared here, keep looking further up
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of Subsystems in this plan
+     */
+    int size() {
+        return flat.length;
+    }
+}
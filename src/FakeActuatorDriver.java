@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+/**
+ * In-memory ActuatorDriver which just remembers what was written, for running
+ * and testing without hardware.
+ */
+public class FakeActuatorDriver implements ActuatorDriver {
+    private double[] values = new double[8];
+    private long[] portWrites = new long[8];
+    private long writes = 0;
+    private long flushes = 0;
+    private int pending = 0;
+    private int lastBatch = 0;
+
+    @Override
+    public void write(int port, double value) {
+        if (port >= values.length) {
+            int length = Math.max(port + 1, values.length * 2);
+            values = Arrays.copyOf(values, length);
+            portWrites = Arrays.copyOf(portWrites, length);
+        }
+        values[port] = value;
+        portWrites[port]++;
+        writes++;
+        pending++;
+    }
+
+    @Override
+    public void flush() {
+        flushes++;
+        lastBatch = pending;
+        pending = 0;
+    }
+
+    /**
+     * @param port Port of an actuator
+     * @return Last value written to the port, or 0 if there is none
+     */
+    public double getValue(int port) {
+        return port < values.length ? values[port] : 0;
+    }
+
+    /**
+     * @param port Port of an actuator
+     * @return Number of writes made to the port
+     */
+    public long getWrites(int port) {
+        return port < portWrites.length ? portWrites[port] : 0;
+    }
+
+    /**
+     * @return Number of writes made to all ports
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return Number of flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return Number of writes which went out with the most recent flush
+     */
+    public int getLastBatchSize() {
+        return lastBatch;
+    }
+}
@@ -0,0 +1,58 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Memory fences for ordering plain reads and writes of memory shared with
+ * other processes (such as a memory-mapped file), where volatile fields
+ * can't be used. Java 8 only offers these through sun.misc.Unsafe, which is
+ * looked up reflectively so that the class still compiles where sun.misc
+ * isn't exported. The method handles are constants, so the JIT compiler
+ * reduces each call to the fence itself.
+ */
+final class Fences {
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle STORE_FENCE;
+
+    static {
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType fence = MethodType.methodType(void.class);
+            LOAD_FENCE = lookup.findVirtual(type, "loadFence", fence).bindTo(unsafe);
+            STORE_FENCE = lookup.findVirtual(type, "storeFence", fence).bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Fences() {
+    }
+
+    /**
+     * Keeps loads before this from being reordered with loads and stores
+     * after it.
+     */
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keeps stores before this from being reordered with stores after it.
+     */
+    static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes everything a loop cycle took in from outside the framework, so that
+ * the cycle can be replayed exactly by InputReplay. One variable-length
+ * record is written per cycle, using a MappedSegmentWriter so that the loop
+ * thread never waits on the disk.
+ *
+ * <p>The header is the int <code>MAGIC</code>, the int number of
+ * Subsystems, and then for each plan index the Subsystem's class name as a
+ * short length and UTF-8 bytes followed by the int plan index of its owner
+ * (-1 for top-level Subsystems). Replay checks this against its own plan so
+ * that inputs can't be handed to the wrong Subsystem.</p>
+ *
+ * <p>Each record is little-endian: an int length of the rest of the record,
+ * the long cycle number, the long clock time, an int count of Subsystems with
+ * inputs followed by each one's int plan index, int input count, and that
+ * many longs, and then an int count of cross-thread requests followed by each
+ * one's int target plan index, the identifier's enum class name as a short
+ * length and UTF-8 bytes, the int ordinal, and the long, double, int, and
+ * boolean (as a byte) payload slots. The <code>data</code> and
+ * <code>result</code> objects of cross-thread requests aren't recorded.</p>
+ */
+final class InputRecorder {
+    static final int MAGIC = 0x4654494e;
+    static final String PREFIX = "inputs";
+
+    /**
+     * Size of an encoded cross-thread request, not counting the identifier's
+     * class name.
+     */
+    private static final int POST_BYTES = 4 + 2 + 4 + 8 + 8 + 4 + 1;
+
+    private final Subsystem[] subsystems;
+    private final MappedSegmentWriter writer;
+    /**
+     * Cross-thread requests received so far this cycle, already encoded.
+     */
+    private ByteBuffer posts;
+    private int postCount = 0;
+    /**
+     * Enum types seen in cross-thread requests, and the UTF-8 bytes of each
+     * one's name at the same position, so names are only encoded once.
+     */
+    private Class<?>[] postTypes = new Class<?>[0];
+    private byte[][] postNames = new byte[0][];
+
+    /**
+     * Sizes the buffer for cross-thread requests so that it can hold a full
+     * cross-thread inbox for every Subsystem which has one, and encodes the
+     * names of the enum types those Subsystems handle, so that recording
+     * them doesn't allocate.
+     *
+     * @param directory    Directory to write segments into
+     * @param segmentBytes Size of each segment file
+     * @param subsystems   Every Subsystem, in plan order
+     * @throws IOException If the first segment can't be created.
+     */
+    InputRecorder(File directory, int segmentBytes, Subsystem[] subsystems) throws IOException {
+        this.subsystems = subsystems;
+        int capacity = 0;
+        int longestName = 0;
+        for (Subsystem subsystem : subsystems) {
+            if (subsystem.getCrossThreadCapacity() == 0)
+                continue;
+            capacity += subsystem.getCrossThreadCapacity();
+            for (Class<?> type : subsystem.getActionTypes())
+                longestName = Math.max(longestName, encodedName(type).length);
+        }
+        posts = ByteBuffer.allocate(Math.max(256, capacity * (POST_BYTES + longestName)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        writer = new MappedSegmentWriter(directory, PREFIX, segmentBytes, header(subsystems));
+    }
+
+    /**
+     * Describes the layout of the execution plan so that a replay can check
+     * that it is feeding the same Subsystems.
+     */
+    private static byte[] header(Subsystem[] subsystems) {
+        byte[][] names = new byte[subsystems.length][];
+        int length = 8;
+        for (int i = 0; i < subsystems.length; i++) {
+            names[i] = subsystems[i].getClass().getName().getBytes(StandardCharsets.UTF_8);
+            length += 2 + names[i].length + 4;
+        }
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(subsystems.length);
+        for (int i = 0; i < subsystems.length; i++) {
+            Subsystem owner = subsystems[i].getOwner();
+            header.putShort((short) names[i].length).put(names[i])
+                    .putInt(owner == null ? -1 : owner.getPlanIndex());
+        }
+        return header.array();
+    }
+
+    /**
+     * Notes a request posted from another thread as it is received. This may
+     * be called from pool threads in parallel mode. It only allocates the
+     * first time it sees an identifier type the target has no handler for,
+     * or if more requests arrive in one cycle than the cross-thread inboxes
+     * hold.
+     *
+     * @param target  Subsystem receiving the request
+     * @param message The request
+     */
+    synchronized void recordPost(Subsystem target, Msg message) {
+        byte[] name = encodedName(message.identifier.getDeclaringClass());
+        int length = POST_BYTES + name.length;
+        if (posts.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(posts.capacity() * 2, posts.position() + length))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            posts.flip();
+            posts = grown.put(posts);
+        }
+        posts.putInt(target.getPlanIndex()).putShort((short) name.length).put(name)
+                .putInt(message.identifier.ordinal()).putLong(message.getLong())
+                .putDouble(message.getDouble()).putInt(message.getInt())
+                .put((byte) (message.getBoolean() ? 1 : 0));
+        postCount++;
+    }
+
+    /**
+     * @param type Enum type of a request's identifier
+     * @return UTF-8 bytes of the type's name, encoded on first use
+     */
+    private byte[] encodedName(Class<?> type) {
+        for (int i = 0; i < postTypes.length; i++) {
+            if (postTypes[i] == type)
+                return postNames[i];
+        }
+        byte[] name = type.getName().getBytes(StandardCharsets.UTF_8);
+        postTypes = Arrays.copyOf(postTypes, postTypes.length + 1);
+        postNames = Arrays.copyOf(postNames, postNames.length + 1);
+        postTypes[postTypes.length - 1] = type;
+        postNames[postNames.length - 1] = name;
+        return name;
+    }
+
+    /**
+     * Writes the record for a finished cycle and clears the Subsystems' input
+     * buffers for the next one.
+     *
+     * @param cycle Cycle number
+     * @param nanos Clock time the cycle ran at
+     */
+    synchronized void record(long cycle, long nanos) {
+        int withInputs = 0;
+        int length = 8 + 8 + 4 + 4 + posts.position();
+        for (Subsystem subsystem : subsystems) {
+            if (subsystem.inputCount > 0) {
+                withInputs++;
+                length += 8 + subsystem.inputCount * 8;
+            }
+        }
+        ByteBuffer buffer = writer.append(4 + length);
+        if (buffer != null) {
+            buffer.putInt(length).putLong(cycle).putLong(nanos).putInt(withInputs);
+            for (Subsystem subsystem : subsystems) {
+                if (subsystem.inputCount > 0) {
+                    buffer.putInt(subsystem.getPlanIndex()).putInt(subsystem.inputCount);
+                    for (int i = 0; i < subsystem.inputCount; i++)
+                        buffer.putLong(subsystem.inputs[i]);
+                }
+            }
+            posts.flip();
+            buffer.putInt(postCount).put(posts);
+            writer.commit();
+        }
+        for (Subsystem subsystem : subsystems)
+            subsystem.inputCount = 0;
+        posts.clear();
+        postCount = 0;
+    }
+
+    /**
+     * @return Number of cycles dropped because a segment wasn't ready, which
+     * makes the recording unusable for replay past that point
+     */
+    long getDroppedRecords() {
+        return writer.getDroppedRecords();
+    }
+
+    /**
+     * Flushes everything written to disk and stops the background thread.
+     *
+     * @throws IOException If a segment couldn't be written.
+     */
+    void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds a recording made by InputRecorder back into the Manager one cycle at
+ * a time. Before each cycle, it loads the next record, hands each Subsystem
+ * the inputs it read during that cycle, and queues the cross-thread requests
+ * which were received during it. It also serves as the clock's time source so
+ * that every cycle sees the time it originally ran at.
+ */
+final class InputReplay implements TimeSource {
+    private final Subsystem[] subsystems;
+    private final List<File> files;
+    private final Map<String, Enum[]> identifiers = new HashMap<>();
+    private int file = 0;
+    private MappedSegmentReader segment;
+    private ByteBuffer records;
+    private long remaining;
+    private long nextCycle;
+    private long nanos;
+
+    /**
+     * Opens a recording and reads the time of its first cycle.
+     *
+     * @param directory  Directory the recording was written into
+     * @param subsystems Every Subsystem, in plan order
+     * @throws IOException If the recording is missing or its plan layout
+     *                     (the class and owner at each plan index) doesn't
+     *                     match the Subsystems.
+     */
+    InputReplay(File directory, Subsystem[] subsystems) throws IOException {
+        this.subsystems = subsystems;
+        files = MappedSegmentReader.segmentFiles(directory, InputRecorder.PREFIX);
+        if (files.isEmpty())
+            throw new IOException("No input recording in " + directory);
+        open(0);
+        ByteBuffer header = segment.header();
+        if (header.getInt() != InputRecorder.MAGIC)
+            throw new IOException(files.get(0) + " is not an input recording.");
+        if (header.getInt() != subsystems.length)
+            throw new IOException("Recording was made with a different number of Subsystems.");
+        for (int i = 0; i < subsystems.length; i++) {
+            byte[] name = new byte[header.getShort()];
+            header.get(name);
+            String type = new String(name, StandardCharsets.UTF_8);
+            int owner = header.getInt();
+            Subsystem actualOwner = subsystems[i].getOwner();
+            if (!type.equals(subsystems[i].getClass().getName())
+                    || owner != (actualOwner == null ? -1 : actualOwner.getPlanIndex()))
+                throw new IOException("Recording has a " + type + " owned by plan index "
+                        + owner + " at plan index " + i + ", which doesn't match "
+                        + subsystems[i] + ".");
+        }
+        if (!hasNext())
+            throw new IOException("Input recording in " + directory + " is empty.");
+        nextCycle = records.getLong(records.position() + 4);
+        nanos = records.getLong(records.position() + 12);
+    }
+
+    private void open(int index) throws IOException {
+        file = index;
+        segment = new MappedSegmentReader(files.get(index));
+        records = segment.view();
+        records.position(segment.getDataStart());
+        remaining = segment.getRecordCount();
+    }
+
+    /**
+     * @return Whether there is another cycle to replay
+     */
+    boolean hasNext() {
+        while (remaining == 0) {
+            if (file + 1 >= files.size())
+                return false;
+            try {
+                open(file + 1);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open " + files.get(file + 1), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Cycle number of the next record
+     */
+    long getNextCycle() {
+        return nextCycle;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * Loads the next cycle's inputs into the Subsystems and queues its
+     * cross-thread requests.
+     *
+     * @param cycle Number of the cycle about to run
+     * @throws IllegalStateException If there are no more records, or if the
+     *                               recording skips cycles.
+     */
+    void next(long cycle) {
+        if (!hasNext())
+            throw new IllegalStateException("Input recording has run out.");
+        records.getInt();
+        long recorded = records.getLong();
+        if (recorded != cycle)
+            throw new IllegalStateException("Input recording has cycle "
+                    + recorded + " where cycle " + cycle + " was expected.");
+        nanos = records.getLong();
+        remaining--;
+
+        for (Subsystem subsystem : subsystems) {
+            subsystem.inputCount = 0;
+            subsystem.inputCursor = 0;
+        }
+        for (int count = records.getInt(); count > 0; count--) {
+            Subsystem subsystem = subsystems[records.getInt()];
+            int inputs = records.getInt();
+            subsystem.ensureInputCapacity(inputs);
+            for (int i = 0; i < inputs; i++)
+                subsystem.inputs[i] = records.getLong();
+            subsystem.inputCount = inputs;
+        }
+        for (int count = records.getInt(); count > 0; count--) {
+            Subsystem target = subsystems[records.getInt()];
+            byte[] name = new byte[records.getShort()];
+            records.get(name);
+            Msg message = new Msg(identifier(new String(name, StandardCharsets.UTF_8),
+                    records.getInt()));
+            message.setLong(records.getLong());
+            message.setDouble(records.getDouble());
+            message.setInt(records.getInt());
+            message.setBoolean(records.get() != 0);
+            target.replayPost(message);
+        }
+    }
+
+    private Enum identifier(String type, int ordinal) {
+        Enum[] constants = identifiers.get(type);
+        if (constants == null) {
+            try {
+                constants = (Enum[]) Class.forName(type).getEnumConstants();
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Recorded identifier type " + type + " is missing.", e);
+            }
+            identifiers.put(type, constants);
+        }
+        return constants[ordinal];
+    }
+}
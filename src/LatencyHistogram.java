@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds with logarithmic buckets.
+ * Each power of two is split into four buckets, so any reported percentile is
+ * within about 25% of the true value, and recording is a few arithmetic
+ * operations and an array increment with no allocation.
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of buckets each power of two is split into, as a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    /**
+     * Adds one duration.
+     *
+     * @param nanos Duration in nanoseconds (negative values count as zero)
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    /**
+     * @return Number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Longest recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return Average recorded duration in nanoseconds, or 0 if empty
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Estimates a percentile as the upper edge of the bucket it falls in.
+     *
+     * @param percentile Percentile from 0 to 100, such as 50 or 99
+     * @return Estimated duration in nanoseconds, or 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(upperEdge(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Forgets all recorded durations.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Finds the bucket for a duration: values below <code>SUB_BUCKETS</code>
+     * each get their own bucket, and every power of two above that is split
+     * evenly by the bits right below its highest bit.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    /**
+     * @return Largest duration which falls in the given bucket
+     */
+    private static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        long lower = (1L << exponent) + (sub << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Latest-value publish/subscribe slot for a long. The owning Subsystem
+ * publishes once per cycle (normally in <code>updateSelfData</code>), and any
+ * number of subscribers read the value directly afterward instead of each
+ * sending a data request. Get one with <code>Subsystem.longChannel</code>.
+ */
+public final class LongChannel {
+    private final Subsystem publisher;
+    private long value;
+    private long version = 0;
+
+    LongChannel(Subsystem publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Replaces the value. Only the owning Subsystem should call this.
+     *
+     * @param value New value
+     */
+    public void publish(long value) {
+        this.value = value;
+        version++;
+    }
+
+    /**
+     * @return The most recently published value, or 0 if there is none yet
+     */
+    public long get() {
+        return value;
+    }
+
+    /**
+     * @return Number of times a value has been published, which subscribers
+     * can compare between cycles to tell whether the value is fresh
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Subsystem which publishes to this channel
+     */
+    public Subsystem getPublisher() {
+        return publisher;
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives <code>Manager.loop()</code> at a fixed rate on its own thread. Each
+ * wait sleeps until shortly before the next deadline and then spins the rest
+ * of the way, which keeps tick spacing consistent without burning a whole
+ * core. When a cycle runs past the start of the next tick, that tick's
+ * deadline is counted as missed and handled according to the scheduler's
+ * OverrunPolicy. If <code>loop()</code> throws, the loop thread stops.
+ */
+public class LoopScheduler {
+    /**
+     * What to do when a loop cycle runs past the start of the next tick.
+     */
+    public enum OverrunPolicy {
+        /**
+         * Drop the ticks which were missed and stay on the original schedule,
+         * starting again at the next tick boundary.
+         */
+        SKIP,
+        /**
+         * Run the missed ticks back to back until the schedule is caught up.
+         */
+        CATCH_UP,
+        /**
+         * Start the next tick right away and measure the period from there,
+         * shifting the schedule later.
+         */
+        STRETCH
+    }
+
+    /**
+     * How long before a deadline to stop sleeping and start spinning. Sleeps
+     * commonly overshoot by tens of microseconds up to a millisecond or so.
+     */
+    private static final long SPIN_NANOS = 200_000;
+
+    private final Manager manager;
+    private final long periodNanos;
+    private final OverrunPolicy policy;
+    private volatile boolean running = false;
+    private Thread thread;
+    /**
+     * Number of ticks whose deadline passed before they could start, counting
+     * both ticks which were then run late and ticks which were dropped.
+     */
+    private volatile long deadlineMisses = 0;
+    /**
+     * Number of ticks dropped by the SKIP policy.
+     */
+    private volatile long skippedTicks = 0;
+    /**
+     * Largest amount a previous cycle has run past a tick's deadline by, in
+     * nanoseconds.
+     */
+    private volatile long maxLatenessNanos = 0;
+
+    /**
+     * @param manager   Manager to run
+     * @param frequency Loop cycles per second
+     * @param policy    What to do when a cycle overruns its period
+     */
+    public LoopScheduler(Manager manager, double frequency, OverrunPolicy policy) {
+        if (frequency <= 0)
+            throw new IllegalArgumentException("Frequency must be positive.");
+        this.manager = manager;
+        this.periodNanos = Math.round(1e9 / frequency);
+        this.policy = policy;
+    }
+
+    /**
+     * Starts running the Manager on a new thread.
+     *
+     * @throws IllegalStateException If the scheduler is already running.
+     */
+    public synchronized void start() {
+        if (running)
+            throw new IllegalStateException("Scheduler is already running.");
+        running = true;
+        thread = new Thread(this::run, "loop-scheduler");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * @return Whether the loop thread is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the loop thread after its current cycle and waits for it to end.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+            thread = null;
+        }
+    }
+
+    /**
+     * Counts every tick whose deadline passed before it could start, the same
+     * way for all policies. Under CATCH_UP and STRETCH, each such tick is still
+     * run late and counts once. Under SKIP, each one is dropped instead, so
+     * this equals <code>getSkippedTicks()</code>.
+     *
+     * @return Number of ticks whose deadline passed before they could start
+     */
+    public long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+
+    /**
+     * @return Number of ticks dropped because of overruns (SKIP policy only)
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * @return Largest amount a cycle has run past the next tick's deadline
+     * by, in nanoseconds
+     */
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    private void run() {
+        try {
+            long deadline = System.nanoTime() + periodNanos;
+            while (running) {
+                long lateness = System.nanoTime() - deadline;
+                if (lateness > 0) {
+                    // the last cycle ran past the start of this tick
+                    if (lateness > maxLatenessNanos)
+                        maxLatenessNanos = lateness;
+                    switch (policy) {
+                        case SKIP:
+                            // this tick and every later one already due
+                            long missed = lateness / periodNanos + 1;
+                            deadlineMisses += missed;
+                            skippedTicks += missed;
+                            deadline += missed * periodNanos;
+                            break;
+                        case STRETCH:
+                            deadlineMisses++;
+                            deadline += lateness;
+                            break;
+                        case CATCH_UP:
+                            // later overdue ticks are counted as they come up
+                            deadlineMisses++;
+                            break;
+                    }
+                }
+                waitUntil(deadline);
+                manager.loop();
+                deadline += periodNanos;
+            }
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Sleeps until just before the deadline, then spins until it passes.
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS)
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        while (deadline - System.nanoTime() > 0)
+            Thread.yield();
+    }
+}
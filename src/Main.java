@@ -9,5 +9,7 @@ public class Main {
     public static void main(String[] args) {
         Subsystem timer = new Timer(null);
         Manager manager = new Manager(timer);
+        manager.init();
+        new LoopScheduler(manager, 200, LoopScheduler.OverrunPolicy.SKIP).start();
     }
 }
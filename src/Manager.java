@@ -1,6 +1,9 @@
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Manages all of the robot's aspects by holding all system data and calling the
@@ -8,44 +11,602 @@ import java.util.Set;
  */
 public class Manager {
     /**
-     * Top-level Subsystems without an actual owner. This is used as the start
-     * for recursive running-through of Subsystems for a specific in or out
-     * iteration direction.
+     * Flattened ordering of all Subsystems compiled from the top-level
+     * Subsystems at construction. Every loop cycle walks the arrays in this
+     * instead of recursing through each Subsystem's subsystems Set.
      */
-    Set<Subsystem> topSubsystems;
+    final ExecutionPlan plan;
     /**
-     * All Subsystems (including <code>topSubsystems</code>). This is used for
-     * general updates which can happen across all subsystems in any order.
+     * Messages leased to Subsystems, all taken back after each cycle's cleanup.
      */
-    Set<Subsystem> allSubsystems;
+    final MsgPool messagePool = new MsgPool();
+    /**
+     * Time shared by all Subsystems, read once at the start of each cycle.
+     */
+    final TickClock clock = new TickClock();
+    /**
+     * Length of one timing wheel tick, which is how precisely scheduled
+     * requests are timed (rounded up to the loop cycle they fall in).
+     */
+    static final long TIMER_RESOLUTION_NANOS = 1_000_000;
+    /**
+     * Requests scheduled for delivery in later loop cycles.
+     */
+    private final TimingWheel timers = new TimingWheel(TIMER_RESOLUTION_NANOS);
+    /**
+     * Writes the outputs staged on Subsystems' Actuators after they publish.
+     */
+    private final OutputStage output;
+    /**
+     * Per-cycle telemetry log, or null if not recording.
+     */
+    private TelemetryRecorder telemetry;
+    /**
+     * Shared-memory mirror of selected values, or null if off.
+     */
+    private Blackboard blackboard;
+    /**
+     * Log of everything each cycle takes in from outside the framework, or
+     * null if not recording.
+     */
+    private InputRecorder inputRecorder;
+    /**
+     * Recording being fed back in, or null if not replaying.
+     */
+    private InputReplay replay;
+    /**
+     * Whether the actuation phase runs and Actuator outputs are written.
+     */
+    private boolean publishingEnabled = true;
+    /**
+     * Pool used to run the order-independent phases across threads, or null
+     * for running everything on the calling thread.
+     */
+    private ForkJoinPool pool;
+    /**
+     * Smallest number of Subsystems a phase must run over before it is split
+     * across <code>pool</code>. Below this, the coordination costs more than
+     * it saves.
+     */
+    private int parallelThreshold;
+    /**
+     * Reusable task trees over each of <code>plan.phases</code> for parallel
+     * phases, indexed by phase ordinal.
+     */
+    private PhaseTask[] phaseTasks;
+    /**
+     * Reusable task trees over each of <code>plan.levels</code> and
+     * <code>plan.actionSenders</code> for running the action request cascade
+     * in parallel within a level.
+     */
+    private PhaseTask[] levelTasks, senderTasks;
+    /**
+     * Strict-mode allocation check around each loop cycle, or null if off.
+     */
+    private AllocationMonitor allocationMonitor;
+    /**
+     * Per-Subsystem, per-phase timing, or null if profiling is off.
+     */
+    private PhaseProfiler profiler;
+    /**
+     * Stream the profile is printed to periodically, or null for never.
+     */
+    private PrintStream profileOut;
+    /**
+     * Number of loop cycles between profile printouts.
+     */
+    private int profileDumpCycles;
+    /**
+     * Number of loop cycles completed so far.
+     */
+    private long cycles = 0;
+    /**
+     * Subsystems which don't run every cycle, or an empty array if there are
+     * none.
+     */
+    private final Subsystem[] multiRateSubsystems;
 
     /**
      * Creates a new Manager using already constructed Subsystems in appropriate
      * hierarchies. Each Subsystem should have all of its Subsystems (and so on)
      * initialized appropriately with appropriate owner references because that
-     * is (hopefully) verified during Manager construction.
+     * is verified during Manager construction. The verified hierarchy is then
+     * compiled into a fixed execution plan, so Subsystems added afterward will
+     * not be run. The plan leaves out Subsystems from the phases whose
+     * methods they don't override, since those calls would do nothing.
      *
      * @param topSubsystems Any number of top-level Subsystems this manager will
      *                      be in charge of. Each should already be initialized
      *                      and have its hierarchies set up.
+     * @throws IllegalArgumentException If a Subsystem has the wrong owner or is
+     *                                  owned by more than one Subsystem, or if
+     *                                  two Actuators share a port.
      */
     public Manager(Subsystem... topSubsystems) {
-        this.topSubsystems = new HashSet<>(Arrays.asList(topSubsystems));
-        this.allSubsystems = new HashSet<>();
         for (Subsystem subsystem : topSubsystems)
-            subsystem.verify(null);
-        for (Subsystem subsystem : this.topSubsystems) {
-            this.allSubsystems.addAll(subsystem.getSubsystems());
-            this.allSubsystems.add(subsystem);
+            if (!subsystem.verify(null))
+                throw new IllegalArgumentException(
+                        "Subsystem hierarchy has a mismatched owner under " + subsystem);
+        plan = new ExecutionPlan(topSubsystems);
+        for (int i = 0; i < plan.size(); i++)
+            plan.flat[i].attach(this, i);
+
+        // spread slow Subsystems over different cycles with one running count
+        // so that even Subsystems with different divisors start out apart
+        List<Subsystem> multiRate = new ArrayList<>();
+        for (Subsystem subsystem : plan.flat) {
+            int divisor = subsystem.getRateDivisor();
+            if (divisor > 1) {
+                subsystem.setRateOffset(multiRate.size() % divisor);
+                multiRate.add(subsystem);
+            }
         }
+        multiRateSubsystems = multiRate.toArray(new Subsystem[0]);
+        output = new OutputStage(plan.flat);
     }
 
     /**
-     * Doesn't do anything yet. This will be more applicable with the
-     * implementation of a computer vision system.
+     * Turns on parallel mode, in which the data request, data response, logic
+     * update, control model update, and cleanup phases are each split across
+     * the given pool. Every phase still finishes completely before the next one
+     * starts. Because those phases are already documented to run in arbitrary
+     * order without changing the state of other Subsystems, the only extra
+     * requirement on Subsystems is that their implementations of those phases
+     * don't share unsynchronized state with each other. Inboxes and the
+     * message pool are only locked while parallel mode is on, so this must be called between loop
+     * cycles.
+     *
+     * @param pool      Pool to run phases on, or null to turn parallel mode off
+     * @param threshold Minimum number of Subsystems before a phase is run in
+     *                  parallel instead of sequentially on the loop thread
      */
-    public void init() {
+    public void setParallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.parallelThreshold = threshold;
+        for (Subsystem subsystem : plan.flat)
+            subsystem.setInboxShared(pool != null);
+        messagePool.setShared(pool != null);
+        if (pool == null) {
+            phaseTasks = null;
+            levelTasks = null;
+            senderTasks = null;
+            return;
+        }
+        phaseTasks = new PhaseTask[plan.phases.length];
+        for (int i = 0; i < phaseTasks.length; i++)
+            phaseTasks[i] = createTask(plan.phases[i]);
+        levelTasks = new PhaseTask[plan.levels.length];
+        senderTasks = new PhaseTask[plan.levels.length];
+        for (int i = 0; i < levelTasks.length; i++) {
+            levelTasks[i] = createTask(plan.levels[i]);
+            senderTasks[i] = createTask(plan.actionSenders[i]);
+        }
+    }
+
+    /**
+     * Builds the task tree for running phases over the given Subsystems.
+     *
+     * @param subsystems Subsystems the task will run phases over
+     * @return Task tree split for the pool's parallelism
+     */
+    private PhaseTask createTask(Subsystem[] subsystems) {
+        // a few chunks per worker lets the pool balance uneven Subsystems
+        int grain = Math.max(1, subsystems.length / (pool.getParallelism() * 4));
+        return new PhaseTask(subsystems, 0, subsystems.length, grain);
+    }
+
+    /**
+     * Turns the message pool's debug mode on or off. In debug mode, messages
+     * leased with <code>Subsystem.lease</code> are thrown away instead of reused
+     * once their cycle ends, and any attempt to request one or read or write
+     * its primitive payload afterward throws an IllegalStateException. This
+     * allocates on every lease, so it is meant for testing only.
+     *
+     * @param debug Whether to catch use of leased messages after their cycle
+     */
+    public void setMsgPoolDebug(boolean debug) {
+        messagePool.setDebug(debug);
+    }
+
+    /**
+     * Turns on strict allocation mode for testing. After the given number of
+     * warm-up cycles, every <code>loop()</code> call measures the bytes
+     * allocated on the calling thread and throws if there were any. Only the
+     * loop thread is measured, so Subsystem code run on pool threads in
+     * parallel mode isn't covered. The JIT compiler itself allocates a little
+     * while it recompiles hot code, so warm-up should be long enough for that
+     * to settle (tens of thousands of cycles is typical).
+     *
+     * @param warmupCycles Number of loop cycles to allow allocation in, or a
+     *                     negative number to turn strict mode off
+     * @throws UnsupportedOperationException If the JVM can't count allocated
+     *                                       bytes per thread.
+     */
+    public void setStrictAllocation(int warmupCycles) {
+        allocationMonitor = warmupCycles < 0 ? null : new AllocationMonitor(warmupCycles);
+    }
+
+    /**
+     * Turns profiling on or off. While it's on, every phase call on every
+     * Subsystem is timed and kept in a histogram which can be looked at with
+     * <code>getLatency</code>. Turning it on again starts over with empty
+     * histograms. While it's off, the only cost is one null check per phase.
+     *
+     * @param enabled Whether to time phase calls
+     */
+    public void setProfiling(boolean enabled) {
+        profiler = enabled ? new PhaseProfiler(plan) : null;
+    }
+
+    /**
+     * Makes the Manager print the profile every so many loop cycles and then
+     * reset it, so each printout covers only the cycles since the last one.
+     * Printing does allocate, so this is best kept to infrequent intervals.
+     * This has no effect unless profiling is on.
+     *
+     * @param out         Stream to print to, or null to stop printing
+     * @param everyCycles Number of loop cycles between printouts
+     */
+    public void setProfileDump(PrintStream out, int everyCycles) {
+        profileOut = out;
+        profileDumpCycles = everyCycles;
+    }
+
+    /**
+     * Gets the timings of one phase on one Subsystem collected since
+     * profiling was turned on or last printed.
+     *
+     * @param subsystem Subsystem run by this Manager
+     * @param phase     Phase to get timings for
+     * @return Histogram of call durations
+     * @throws IllegalStateException If profiling is off.
+     */
+    public LatencyHistogram getLatency(Subsystem subsystem, Phase phase) {
+        if (profiler == null)
+            throw new IllegalStateException("Profiling is not enabled.");
+        if (subsystem.getManager() != this)
+            throw new IllegalArgumentException("Subsystem is not run by this Manager.");
+        return profiler.get(subsystem, phase);
+    }
+
+    /**
+     * @return Histogram of whole loop cycle durations collected since profiling
+     * was turned on or last printed
+     * @throws IllegalStateException If profiling is off.
+     */
+    public LatencyHistogram getLoopLatency() {
+        if (profiler == null)
+            throw new IllegalStateException("Profiling is not enabled.");
+        return profiler.loopHistogram;
+    }
+
+    /**
+     * Changes where the Manager's clock reads the time from. This should be
+     * done before the first loop cycle, since Subsystems would otherwise see
+     * the time jump. Passing a SimulatedTimeSource makes every time-based
+     * Subsystem run on simulated time.
+     * <p>Scheduled actions are kept in the old source's time, so this is only
+     * allowed while none are scheduled. The scheduling timeline then starts
+     * over from the new source's time.</p>
+     *
+     * @param source Time source for the clock
+     * @throws IllegalStateException If any action is scheduled with
+     *                               <code>scheduleAction</code> or
+     *                               <code>scheduleRepeatingAction</code>
+     */
+    public void setTimeSource(TimeSource source) {
+        timers.restart();
+        clock.setSource(source);
+    }
+
+    /**
+     * Schedules an action request to be delivered to a Subsystem once, after
+     * a delay on the Manager's clock. It is delivered at the start of the
+     * action request sector of the first loop cycle at or after the delay, so
+     * it takes part in that cycle's cascade like any other action request.
+     * Since the message outlives the current cycle, it must be constructed
+     * directly rather than leased.
+     *
+     * @param target     Subsystem to deliver the request to
+     * @param message    Requested action
+     * @param delayNanos Time to wait in nanoseconds
+     * @return Handle which can be used to cancel the request
+     */
+    public ScheduledRequest scheduleAction(Subsystem target, Msg message, long delayNanos) {
+        return timers.schedule(target, message, clock.getNanos(), delayNanos, 0);
+    }
+
+    /**
+     * Schedules an action request to be delivered to a Subsystem over and
+     * over, once per period on the Manager's clock, starting one period from
+     * now. The same message is delivered each time, so it must be constructed
+     * directly rather than leased.
+     *
+     * <p>The request is delivered at most once per loop cycle. If more than
+     * one period has passed since the last delivery (because the period is
+     * shorter than the loop's, or the loop stalled), the missed deliveries are
+     * dropped rather than made up, and the next one stays on the original
+     * schedule at the first period boundary after the current cycle.</p>
+     *
+     * @param target      Subsystem to deliver the request to
+     * @param message     Requested action
+     * @param periodNanos Time between deliveries in nanoseconds
+     * @return Handle which can be used to stop the deliveries
+     */
+    public ScheduledRequest scheduleRepeatingAction(Subsystem target, Msg message, long periodNanos) {
+        if (periodNanos <= 0)
+            throw new IllegalArgumentException("Period must be positive.");
+        return timers.schedule(target, message, clock.getNanos(), periodNanos, periodNanos);
+    }
+
+    /**
+     * @return Clock which Subsystems read the current cycle's time from
+     */
+    public TickClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets where the outputs staged on Actuators get written. Until a driver
+     * is set, staged outputs aren't written anywhere.
+     *
+     * @param driver Driver for the physical actuators, or null for none
+     */
+    public void setActuatorDriver(ActuatorDriver driver) {
+        output.setDriver(driver);
+    }
+
+    /**
+     * @return Number of Actuator outputs written to the driver so far
+     */
+    public long getActuatorWrites() {
+        return output.getWrites();
+    }
 
+    /**
+     * @return Number of Actuator outputs not written because they hadn't
+     * changed by more than their deadband
+     */
+    public long getSkippedActuatorWrites() {
+        return output.getSkipped();
+    }
+
+    /**
+     * Starts writing a telemetry record at the end of every loop cycle into
+     * memory-mapped segment files in the given directory. Each record starts
+     * with the built-in columns <code>tick</code> (cycle number),
+     * <code>time</code> (clock time), <code>messages</code> (messages leased
+     * that cycle), <code>actuatorWrites</code> (Actuator writes so far), and
+     * <code>actuator.&lt;port&gt;</code> (last written output) for each
+     * Actuator, followed by every field Subsystems registered with
+     * <code>recordLong</code> and <code>recordDouble</code>. Any previous
+     * recording is stopped first, and telemetry segments already in the
+     * directory are deleted.
+     *
+     * @param directory    Directory to write segments into
+     * @param segmentBytes Size of each segment file
+     * @throws IOException If old segments can't be deleted or the first
+     *                     segment can't be created.
+     */
+    public void startTelemetry(File directory, int segmentBytes) throws IOException {
+        stopTelemetry();
+        List<TelemetryField> fields = new ArrayList<>();
+        fields.add(new TelemetryField("tick", () -> cycles));
+        fields.add(new TelemetryField("time", clock::getNanos));
+        fields.add(new TelemetryField("messages", messagePool::getLeased));
+        fields.add(new TelemetryField("actuatorWrites", output::getWrites));
+        for (Actuator actuator : output.getActuators())
+            fields.add(new TelemetryField("actuator." + actuator.getPort(), actuator::getWritten));
+        for (Subsystem subsystem : plan.flat)
+            addNamed(fields, subsystem, subsystem.getTelemetryFields());
+        telemetry = new TelemetryRecorder(directory, segmentBytes, fields);
+    }
+
+    /**
+     * Adds a Subsystem's fields to a list, with each name prefixed by the
+     * Subsystem's class and position in the execution plan.
+     */
+    private static void addNamed(List<TelemetryField> into, Subsystem subsystem,
+                                 List<TelemetryField> fields) {
+        String prefix = subsystem.getClass().getSimpleName()
+                + "[" + subsystem.getPlanIndex() + "].";
+        for (TelemetryField field : fields)
+            into.add(field.longSource != null
+                    ? new TelemetryField(prefix + field.name, field.longSource)
+                    : new TelemetryField(prefix + field.name, field.doubleSource));
+    }
+
+    /**
+     * Stops recording telemetry and flushes what was recorded to disk. Does
+     * nothing if telemetry isn't being recorded.
+     *
+     * @throws IOException If a segment couldn't be written.
+     */
+    public void stopTelemetry() throws IOException {
+        if (telemetry != null) {
+            TelemetryRecorder stopped = telemetry;
+            telemetry = null;
+            stopped.close();
+        }
+    }
+
+    /**
+     * @return Number of telemetry records written in the current recording, or
+     * 0 if not recording
+     */
+    public long getTelemetryRecords() {
+        return telemetry == null ? 0 : telemetry.getRecordCount();
+    }
+
+    /**
+     * @return Number of telemetry records dropped in the current recording
+     * because the next segment file wasn't ready in time
+     */
+    public long getDroppedTelemetryRecords() {
+        return telemetry == null ? 0 : telemetry.getDroppedRecords();
+    }
+
+    /**
+     * Starts mirroring values into a memory-mapped blackboard file at the end
+     * of every loop cycle, so that other processes on the same machine can
+     * read live state with BlackboardReader (or by mapping the file
+     * themselves) without costing the loop anything. The file holds the
+     * cycle number and every value Subsystems registered with
+     * <code>shareLong</code> and <code>shareDouble</code>, named like
+     * telemetry columns. Any previous blackboard is stopped first.
+     *
+     * @param file File to create, replacing any existing file
+     * @throws IOException If the file can't be created or mapped.
+     */
+    public void startBlackboard(File file) throws IOException {
+        stopBlackboard();
+        List<TelemetryField> fields = new ArrayList<>();
+        for (Subsystem subsystem : plan.flat)
+            addNamed(fields, subsystem, subsystem.getSharedFields());
+        blackboard = new Blackboard(file, fields);
+    }
+
+    /**
+     * Stops mirroring values and marks the blackboard file as no longer live.
+     * Does nothing if the blackboard is off.
+     */
+    public void stopBlackboard() {
+        if (blackboard != null) {
+            blackboard.close();
+            blackboard = null;
+        }
+    }
+
+    /**
+     * Starts recording everything the loop takes in from outside the
+     * framework: the clock time of each cycle, the values Subsystems pass
+     * through <code>Subsystem.input</code>, and the requests posted from other
+     * threads (without their <code>data</code> and <code>result</code>
+     * objects). The recording can be fed back in with <code>replay</code>.
+     * Any previous recording is stopped first, and input segments already in
+     * the directory are deleted.
+     *
+     * @param directory    Directory to write segments into
+     * @param segmentBytes Size of each segment file
+     * @throws IOException           If the first segment can't be created.
+     * @throws IllegalStateException If a replay is running.
+     */
+    public void startRecordingInputs(File directory, int segmentBytes) throws IOException {
+        if (replay != null)
+            throw new IllegalStateException("Inputs can't be recorded during a replay.");
+        stopRecordingInputs();
+        inputRecorder = new InputRecorder(directory, segmentBytes, plan.flat);
+    }
+
+    /**
+     * Stops recording inputs and flushes what was recorded to disk. Does
+     * nothing if inputs aren't being recorded.
+     *
+     * @throws IOException If a segment couldn't be written.
+     */
+    public void stopRecordingInputs() throws IOException {
+        if (inputRecorder != null) {
+            InputRecorder stopped = inputRecorder;
+            inputRecorder = null;
+            stopped.close();
+        }
+    }
+
+    /**
+     * @return Number of cycles missing from the current input recording
+     * because the next segment file wasn't ready in time
+     */
+    public long getDroppedInputRecords() {
+        return inputRecorder == null ? 0 : inputRecorder.getDroppedRecords();
+    }
+
+    /**
+     * Replays an input recording on the calling thread as fast as possible.
+     * Each loop cycle gets the clock time, <code>Subsystem.input</code>
+     * values, and posted requests of the recorded cycle with the same number,
+     * so Subsystems built the same way as in the recorded run go through the
+     * same states. Publishing is turned off for the replay so that nothing
+     * physical moves, and the time source and publishing setting are put back
+     * afterward. This should be run on a freshly constructed Manager for the
+     * replay to start from the same state as the recording did.
+     *
+     * @param directory Directory the recording was written into
+     * @return Number of cycles replayed
+     * @throws IOException           If the recording can't be read or doesn't
+     *                               match this Manager's Subsystems.
+     * @throws IllegalStateException If inputs are being recorded, or if the
+     *                               recording doesn't line up with the
+     *                               Subsystems' inputs.
+     */
+    public long replay(File directory) throws IOException {
+        if (inputRecorder != null)
+            throw new IllegalStateException("Can't replay while recording inputs.");
+        InputReplay replay = new InputReplay(directory, plan.flat);
+        TimeSource source = clock.getSource();
+        boolean publishing = publishingEnabled;
+        long start = cycles = replay.getNextCycle();
+        this.replay = replay;
+        clock.setSource(replay);
+        publishingEnabled = false;
+        try {
+            while (replay.hasNext())
+                loop();
+        } finally {
+            this.replay = null;
+            clock.setSource(source);
+            publishingEnabled = publishing;
+        }
+        return cycles - start;
+    }
+
+    /**
+     * @return Whether a recording is being replayed
+     */
+    boolean isReplaying() {
+        return replay != null;
+    }
+
+    /**
+     * @return Recorder for inputs, or null if not recording
+     */
+    InputRecorder getInputRecorder() {
+        return inputRecorder;
+    }
+
+    /**
+     * Turns the actuation phase on or off. While it's off,
+     * <code>publishControl</code> isn't called and Actuator outputs aren't
+     * written, which Subsystems are required to run correctly without.
+     *
+     * @param enabled Whether to publish to the hardware
+     */
+    public void setPublishingEnabled(boolean enabled) {
+        publishingEnabled = enabled;
+    }
+
+    /**
+     * @return Whether the actuation phase is run
+     */
+    public boolean isPublishingEnabled() {
+        return publishingEnabled;
+    }
+
+    /**
+     * @return Number of loop cycles completed so far
+     */
+    public long getCycleCount() {
+        return cycles;
+    }
+
+    /**
+     * Gets things running which work alongside the loop rather than in it.
+     * For now, this starts the sampler thread of every AsyncSensor. This will
+     * be more applicable with the implementation of a computer vision system.
+     */
+    public void init() {
+        for (Subsystem subsystem : plan.flat)
+            if (subsystem instanceof AsyncSensor)
+                ((AsyncSensor) subsystem).startSampling();
     }
 
     /**
@@ -54,6 +615,17 @@ public class Manager {
      * updates -> action requests -> actuation -> cleanup. In more detail, it
      * is:
      *
+     * <p>Subsystems with a rate divisor only run their own phases on the cycles
+     * they are due in, but always respond to requests.</p>
+     *
+     * <p>If parallel mode is turned on with <code>setParallelism</code>, the
+     * phases described as running in arbitrary order are split across
+     * threads, as are the sends and receives within one level of the action
+     * request cascade.</p>
+     *
+     * <p>The Manager's clock is read once at the very start, so every
+     * Subsystem sees the same time for the whole cycle.</p>
+     *
      * <p><b>Basic Data Update: </b>
      * First, the basic data of all Subsystems is updated in an outward
      * direction. The innermost and most basic subsystems update first (such as
@@ -128,43 +700,126 @@ public class Manager {
      * There shouldn't be data side effects from this. This should be isolated
      * such that if it isn't called, everything continues running correctly. A
      * case for not calling this would be if the actual physical robot needs to
-     * be manually moved for testing or if a mechanism is out of order.</p>
+     * be manually moved for testing or if a mechanism is out of order, and it
+     * can be turned off with <code>setPublishingEnabled</code>.
+     * Outputs are staged on Actuators rather than written directly, and once
+     * every Subsystem has published, the ones which changed by more than their
+     * deadband are written through the ActuatorDriver in a single batch.</p>
      *
      * <p><b>Cleanup: </b>
      * The final part is the call of the cleanup function. It doesn't have a
      * specific purpose. It's mostly there as a just-in-case thing for code
-     * which doesn't fit in elsewhere.</p>
+     * which doesn't fit in elsewhere. After it, telemetry and inputs are
+     * recorded if recording is on, shared values are mirrored to the
+     * blackboard if it is on, and all messages leased from the message pool this
+     * cycle are taken back.</p>
+     *
+     * @throws IllegalStateException If strict allocation mode is on and the
+     *                               cycle allocated after warm-up.
      */
     public void loop() {
+        if (allocationMonitor != null)
+            allocationMonitor.before();
+        if (profiler == null) {
+            runCycle();
+        } else {
+            long start = System.nanoTime();
+            runCycle();
+            profiler.loopHistogram.record(System.nanoTime() - start);
+        }
+        cycles++;
+        if (allocationMonitor != null)
+            allocationMonitor.after();
+        if (profiler != null && profileOut != null && profileDumpCycles > 0
+                && cycles % profileDumpCycles == 0)
+            profiler.dump(profileOut);
+    }
+
+    /**
+     * Runs all of the phases of one loop cycle in the order described for
+     * <code>loop()</code>.
+     */
+    private void runCycle() {
+        if (replay != null)
+            replay.next(cycles);
+        clock.tick();
+        for (int i = 0; i < multiRateSubsystems.length; i++)
+            multiRateSubsystems[i].updateDue(cycles);
+
         // basic updates sector
-        for (Subsystem subsystem : topSubsystems)
-            subsystem.updateData();
+        run(Phase.UPDATE_SELF_DATA);
 
         // data requests sector
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.sendDataRequest();
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.receiveDataRequestMessages();
+        run(Phase.SEND_DATA_REQUEST);
+        run(Phase.RECEIVE_DATA_REQUESTS);
 
         // logic update sector
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.updateLogic();
+        run(Phase.UPDATE_LOGIC);
 
-        // action request sector
-        // TODO: make this behave like the comment describes
-        for (Subsystem subsystem : topSubsystems)
-            subsystem.sendActionRequests();
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.receiveActionRequestMessages();
+        // action request sector: scheduled requests come due, then each level
+        // receives what the levels above it sent before sending its own, then
+        // everything sent upward is heard
+        timers.advance(clock.getNanos());
+        for (int i = 0; i < plan.levels.length; i++) {
+            run(Phase.RECEIVE_ACTION_REQUESTS, plan.levels[i],
+                    levelTasks == null ? null : levelTasks[i]);
+            run(Phase.SEND_ACTION_REQUEST, plan.actionSenders[i],
+                    senderTasks == null ? null : senderTasks[i]);
+        }
+        run(Phase.RECEIVE_ACTION_REQUESTS);
 
         // actuation sector
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.updateControlModels();
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.publishControl();
+        run(Phase.UPDATE_CONTROL_MODELS);
+        if (publishingEnabled) {
+            run(Phase.PUBLISH_CONTROL);
+            output.flush();
+        }
 
         // cleanup and utility sector
-        for (Subsystem subsystem : allSubsystems)
-            subsystem.cleanup();
+        run(Phase.CLEANUP);
+        if (telemetry != null)
+            telemetry.record();
+        if (inputRecorder != null)
+            inputRecorder.record(cycles, clock.getNanos());
+        if (blackboard != null)
+            blackboard.publish(cycles);
+        messagePool.recycleAll();
+    }
+
+    /**
+     * Runs one phase over the Subsystems the plan lists for it.
+     *
+     * @param phase Phase to run
+     */
+    private void run(Phase phase) {
+        run(phase, plan.phases[phase.ordinal()],
+                phaseTasks == null ? null : phaseTasks[phase.ordinal()]);
+    }
+
+    /**
+     * Runs one phase over the given Subsystems in array order, or spread across
+     * the pool if parallel mode is on and the phase allows it.
+     *
+     * @param phase      Phase to run
+     * @param subsystems Subsystems to run it on, usually one of the orderings
+     *                   in <code>plan</code>
+     * @param task       Task tree over <code>subsystems</code> for running in
+     *                   parallel, or null to always run sequentially
+     */
+    private void run(Phase phase, Subsystem[] subsystems, PhaseTask task) {
+        if (task != null && phase.parallel
+                && subsystems.length >= parallelThreshold) {
+            task.reinitialize();
+            task.phase = phase;
+            task.profiler = profiler;
+            pool.invoke(task);
+            return;
+        }
+        if (profiler == null)
+            for (int i = 0; i < subsystems.length; i++)
+                phase.run(subsystems[i]);
+        else
+            for (int i = 0; i < subsystems.length; i++)
+                profiler.run(phase, subsystems[i]);
     }
 }
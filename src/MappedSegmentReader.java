@@ -0,0 +1,103 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only memory mapping of one segment written by a MappedSegmentWriter.
+ * The record count and end offset are read from the mapped header on every
+ * call, so a segment which is still being written can be followed as it
+ * grows.
+ */
+final class MappedSegmentReader {
+    private final MappedByteBuffer buffer;
+    private final int segment;
+    private final int dataStart;
+
+    /**
+     * @param file Segment file to map
+     * @throws IOException If the file can't be mapped or isn't a segment.
+     */
+    MappedSegmentReader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < MappedSegmentWriter.HEADER_BYTES
+                || buffer.getInt(0) != MappedSegmentWriter.MAGIC)
+            throw new IOException(file + " is not a segment file.");
+        if (buffer.getInt(4) != MappedSegmentWriter.VERSION)
+            throw new IOException(file + " has unsupported version " + buffer.getInt(4) + ".");
+        segment = buffer.getInt(8);
+        dataStart = buffer.getInt(12);
+    }
+
+    /**
+     * Lists the segments of one log in order, stopping at the first missing
+     * segment number.
+     *
+     * @param directory Directory the segments were written into
+     * @param prefix    Prefix the segments were written with
+     * @return Segment files in order
+     */
+    static List<File> segmentFiles(File directory, String prefix) {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; ; i++) {
+            File file = new File(directory, String.format("%s-%05d.seg", prefix, i));
+            if (!file.isFile())
+                return files;
+            files.add(file);
+        }
+    }
+
+    /**
+     * @return Segment number
+     */
+    int getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return Offset of the first record
+     */
+    int getDataStart() {
+        return dataStart;
+    }
+
+    /**
+     * @return Number of committed records
+     */
+    long getRecordCount() {
+        return buffer.getLong(MappedSegmentWriter.RECORD_COUNT_OFFSET);
+    }
+
+    /**
+     * @return Offset just past the last committed record
+     */
+    long getEnd() {
+        return buffer.getLong(MappedSegmentWriter.END_OFFSET);
+    }
+
+    /**
+     * @return The caller-supplied header bytes, little-endian and positioned
+     * at their start
+     */
+    ByteBuffer header() {
+        ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        header.position(MappedSegmentWriter.HEADER_BYTES);
+        return header;
+    }
+
+    /**
+     * @return A little-endian view of the whole segment, independent of other
+     * views
+     */
+    ByteBuffer view() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
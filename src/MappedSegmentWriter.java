@@ -0,0 +1,298 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only log of records written straight into memory-mapped segment
+ * files of a fixed size. Appending a record is just writing to memory: the
+ * operating system writes the pages out to disk on its own, and creating,
+ * mapping, and flushing segment files all happen on a background thread. The
+ * next segment is always prepared ahead of time and handed over through a
+ * volatile field, so rolling over to it neither waits on the disk nor
+ * allocates. If it isn't ready yet anyway, records are dropped and counted
+ * rather than blocking.
+ *
+ * <p>For the loop thread to really never wait on the disk, a segment's pages
+ * must all be faulted in (and the file's blocks allocated) before it is
+ * handed over. Otherwise the first write to each page would fault on the
+ * loop thread, possibly while the file system allocates a block. The
+ * background thread therefore writes to every page of a segment when it
+ * prepares it.</p>
+ *
+ * <p>Each segment starts with a header: the int magic number
+ * <code>MAGIC</code>, an int format version, the int segment number, the int
+ * offset of the first record, the long number of committed records, and the
+ * long offset just past the last committed record. The caller's own header
+ * bytes follow at <code>HEADER_BYTES</code>, and records start at the next
+ * multiple of 8. Everything is little-endian.</p>
+ */
+final class MappedSegmentWriter {
+    static final int MAGIC = 0x46545347;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_COUNT_OFFSET = 16;
+    static final int END_OFFSET = 24;
+    /**
+     * Spacing of the writes which fault in a new segment. This is the
+     * smallest common page size, so larger pages just get touched more than
+     * once.
+     */
+    private static final int PAGE_BYTES = 4096;
+
+    private final File directory;
+    private final String prefix;
+    private final int segmentBytes;
+    private final byte[] header;
+    /**
+     * Offset of the first record in every segment.
+     */
+    private final int dataStart;
+    private final Thread background;
+    private MappedByteBuffer current;
+    /**
+     * Next segment, mapped by the background thread, or null if it isn't
+     * ready yet.
+     */
+    private volatile MappedByteBuffer prepared;
+    /**
+     * Segment the writer moved on from, waiting for the background thread to
+     * flush it.
+     */
+    private volatile MappedByteBuffer finished;
+    private volatile IOException failure;
+    private volatile boolean closing = false;
+    private int segment = 0;
+    private long records = 0;
+    private long dropped = 0;
+    /**
+     * Start of the record being appended, or -1 if none is.
+     */
+    private int pending = -1;
+
+    /**
+     * Creates the directory if needed, deletes any segments with the same
+     * prefix left there by an earlier log, and maps the first segment.
+     * Leftover segments would otherwise be read as a continuation of this
+     * log, since readers list segments by number until the first one missing.
+     *
+     * @param directory    Directory to write segments into
+     * @param prefix       Start of each segment's file name, which is followed
+     *                     by the segment number
+     * @param segmentBytes Size of each segment file
+     * @param header       Bytes describing the records, copied into every
+     *                     segment's header
+     * @throws IOException              If a leftover segment can't be deleted
+     *                                  or the first segment can't be created.
+     * @throws IllegalArgumentException If the header doesn't leave room in a
+     *                                  segment for records.
+     */
+    MappedSegmentWriter(File directory, String prefix, int segmentBytes, byte[] header)
+            throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentBytes = segmentBytes;
+        this.header = header.clone();
+        this.dataStart = (HEADER_BYTES + header.length + 7) & ~7;
+        if (dataStart >= segmentBytes)
+            throw new IllegalArgumentException("Segments are too small for the header.");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create " + directory);
+        deleteSegments(directory, prefix);
+        current = map(0);
+        background = new Thread(this::prepareSegments, prefix + "-segments");
+        background.setDaemon(true);
+        background.start();
+    }
+
+    /**
+     * Deletes every segment of one log from a directory. Segments of other
+     * logs whose prefixes start the same way are left alone, since the prefix
+     * must be followed directly by the segment number.
+     *
+     * @param directory Directory holding the segments
+     * @param prefix    Prefix the segments were written with
+     * @throws IOException If a segment can't be deleted.
+     */
+    static void deleteSegments(File directory, String prefix) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Could not list " + directory);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.length() == prefix.length() + 10 && name.startsWith(prefix + "-")
+                    && name.endsWith(".seg")
+                    && name.substring(prefix.length() + 1, prefix.length() + 6).matches("[0-9]{5}")
+                    && !file.delete())
+                throw new IOException("Could not delete " + file);
+        }
+    }
+
+    /**
+     * @param segment Segment number
+     * @return File the segment is stored in
+     */
+    File segmentFile(int segment) {
+        return new File(directory, String.format("%s-%05d.seg", prefix, segment));
+    }
+
+    /**
+     * @return Offset of the first record in every segment
+     */
+    int getDataStart() {
+        return dataStart;
+    }
+
+    /**
+     * Starts a record. The record's bytes are written with relative puts on
+     * the returned buffer and then kept with <code>commit</code>. A record
+     * which isn't committed is overwritten by the next one. If the current
+     * segment is too full, this rolls over to the next one.
+     *
+     * @param length Size of the record in bytes
+     * @return Buffer positioned at the start of the record, or null if the
+     * record has to be dropped because the next segment isn't ready
+     * @throws IllegalArgumentException If the record can never fit in a
+     *                                  segment.
+     */
+    ByteBuffer append(int length) {
+        if (length > segmentBytes - dataStart)
+            throw new IllegalArgumentException("Record of " + length
+                    + " bytes doesn't fit in a segment.");
+        if (pending >= 0)
+            current.position(pending);
+        if (current.position() + length > segmentBytes && !rollOver()) {
+            dropped++;
+            return null;
+        }
+        pending = current.position();
+        return current;
+    }
+
+    /**
+     * Keeps the record started by the last <code>append</code>, updating the
+     * segment header so that readers see it.
+     */
+    void commit() {
+        if (pending < 0)
+            return;
+        pending = -1;
+        long count = current.getLong(RECORD_COUNT_OFFSET) + 1;
+        current.putLong(END_OFFSET, current.position());
+        current.putLong(RECORD_COUNT_OFFSET, count);
+        records++;
+    }
+
+    /**
+     * @return Number of records committed
+     */
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * @return Number of records dropped because a segment wasn't ready
+     */
+    long getDroppedRecords() {
+        return dropped;
+    }
+
+    /**
+     * @return Number of the segment being written
+     */
+    int getSegment() {
+        return segment;
+    }
+
+    /**
+     * Flushes the current segment, stops the background thread, and deletes
+     * the prepared segment which was never used.
+     *
+     * @throws IOException If a segment couldn't be created or deleted.
+     */
+    void close() throws IOException {
+        current.force();
+        closing = true;
+        LockSupport.unpark(background);
+        try {
+            background.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing segments.", e);
+        }
+        if (prepared != null && !segmentFile(segment + 1).delete())
+            throw new IOException("Could not delete " + segmentFile(segment + 1));
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Switches to the prepared segment and wakes the background thread to
+     * flush the finished one and prepare the one after.
+     *
+     * @return Whether the prepared segment was ready
+     */
+    private boolean rollOver() {
+        MappedByteBuffer ready = prepared;
+        if (ready == null)
+            return false;
+        prepared = null;
+        finished = current;
+        current = ready;
+        segment++;
+        LockSupport.unpark(background);
+        return true;
+    }
+
+    /**
+     * Background thread which keeps the next segment mapped and flushes
+     * finished ones until closed.
+     */
+    private void prepareSegments() {
+        int segment = 1;
+        while (true) {
+            MappedByteBuffer done = finished;
+            if (done != null) {
+                finished = null;
+                done.force();
+            }
+            if (closing)
+                return;
+            if (prepared == null) {
+                try {
+                    prepared = map(segment++);
+                } catch (IOException e) {
+                    failure = e;
+                    return;
+                }
+                continue;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Creates a segment file, maps it, faults in every page, and writes its
+     * header.
+     */
+    private MappedByteBuffer map(int segment) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(segment), "rw")) {
+            file.setLength(segmentBytes);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        // writing (not just reading) makes the file system allocate the
+        // sparse file's blocks now instead of on the loop thread's first write
+        for (int offset = 0; offset < segmentBytes; offset += PAGE_BYTES)
+            buffer.put(offset, (byte) 0);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(segment).putInt(dataStart)
+                .putLong(0).putLong(dataStart).put(header);
+        buffer.position(dataStart);
+        return buffer;
+    }
+}
@@ -3,7 +3,9 @@
  * "message." It holds an identifier for what sort of thing the message is
  * requesting of the other subsystem and Data for that request if applicable.
  * Subsystems sending these should hold onto a reference to the message for
- * later access to get the result.
+ * later access to get the result. Numeric and boolean data should go in the
+ * primitive payload slots instead of <code>data</code> so that it doesn't need
+ * to be boxed.
  */
 public class Msg {
     /**
@@ -25,6 +27,19 @@ public class Msg {
      * and other problem handling purposes.
      */
     public Object result;
+    /**
+     * Primitive payload slots. These hold the same kind of thing as
+     * <code>data</code>, but for values which would otherwise be boxed.
+     */
+    private long longData;
+    private double doubleData;
+    private int intData;
+    private boolean booleanData;
+    /**
+     * Set when a pooled message is recycled in the pool's debug mode so that
+     * any later use of it can be caught.
+     */
+    private boolean recycled = false;
 
     /**
      * Use this constructor for an Action message where you want to include both
@@ -40,6 +55,54 @@ public class Msg {
         this(identifier, data, null);
     }
 
+    /**
+     * Use this constructor for an Action message with a single long value as
+     * its instruction data.
+     * @param identifier Unique identifier for Action specific to receiving
+     *                   class.
+     * @param data Instruction data, read with <code>getLong()</code>.
+     */
+    public Msg(Enum identifier, long data) {
+        this(identifier);
+        longData = data;
+    }
+
+    /**
+     * Use this constructor for an Action message with a single double value as
+     * its instruction data.
+     * @param identifier Unique identifier for Action specific to receiving
+     *                   class.
+     * @param data Instruction data, read with <code>getDouble()</code>.
+     */
+    public Msg(Enum identifier, double data) {
+        this(identifier);
+        doubleData = data;
+    }
+
+    /**
+     * Use this constructor for an Action message with a single int value as
+     * its instruction data.
+     * @param identifier Unique identifier for Action specific to receiving
+     *                   class.
+     * @param data Instruction data, read with <code>getInt()</code>.
+     */
+    public Msg(Enum identifier, int data) {
+        this(identifier);
+        intData = data;
+    }
+
+    /**
+     * Use this constructor for an Action message with a single boolean value
+     * as its instruction data.
+     * @param identifier Unique identifier for Action specific to receiving
+     *                   class.
+     * @param data Instruction data, read with <code>getBoolean()</code>.
+     */
+    public Msg(Enum identifier, boolean data) {
+        this(identifier);
+        booleanData = data;
+    }
+
     /**
      * Use constructor for a Data request message because those don't need
      * initialized Data. The responding Subsystem should put the answer into the
@@ -64,4 +127,123 @@ public class Msg {
         this.data = data;
         this.result = result;
     }
+
+    /**
+     * @return The long payload slot
+     */
+    public long getLong() {
+        checkLive();
+        return longData;
+    }
+
+    /**
+     * Puts a long into the payload without boxing it. A responding Subsystem
+     * would use this to answer a numeric data request.
+     * @param data Value for the long payload slot
+     */
+    public void setLong(long data) {
+        checkLive();
+        longData = data;
+    }
+
+    /**
+     * @return The double payload slot
+     */
+    public double getDouble() {
+        checkLive();
+        return doubleData;
+    }
+
+    /**
+     * Puts a double into the payload without boxing it.
+     * @param data Value for the double payload slot
+     */
+    public void setDouble(double data) {
+        checkLive();
+        doubleData = data;
+    }
+
+    /**
+     * @return The int payload slot
+     */
+    public int getInt() {
+        checkLive();
+        return intData;
+    }
+
+    /**
+     * Puts an int into the payload without boxing it.
+     * @param data Value for the int payload slot
+     */
+    public void setInt(int data) {
+        checkLive();
+        intData = data;
+    }
+
+    /**
+     * @return The boolean payload slot
+     */
+    public boolean getBoolean() {
+        checkLive();
+        return booleanData;
+    }
+
+    /**
+     * Puts a boolean into the payload without boxing it.
+     * @param data Value for the boolean payload slot
+     */
+    public void setBoolean(boolean data) {
+        checkLive();
+        booleanData = data;
+    }
+
+    /**
+     * Copies the answer to a request (everything except the identifier) from
+     * another message, such as a cached answer to the same request.
+     *
+     * @param other Message to copy from
+     */
+    void copyPayloadFrom(Msg other) {
+        checkLive();
+        other.checkLive();
+        data = other.data;
+        result = other.result;
+        longData = other.longData;
+        doubleData = other.doubleData;
+        intData = other.intData;
+        booleanData = other.booleanData;
+    }
+
+    /**
+     * Resets every field so a pooled message can be leased out again.
+     */
+    void clear() {
+        identifier = null;
+        data = null;
+        result = null;
+        longData = 0;
+        doubleData = 0;
+        intData = 0;
+        booleanData = false;
+    }
+
+    /**
+     * Clears this message and marks it as no longer usable.
+     */
+    void recycle() {
+        clear();
+        recycled = true;
+    }
+
+    /**
+     * Makes sure this message hasn't been recycled (only tracked in the
+     * message pool's debug mode).
+     *
+     * @throws IllegalStateException If this message was already recycled.
+     */
+    void checkLive() {
+        if (recycled)
+            throw new IllegalStateException(
+                    "Msg was used after being recycled at the end of its loop cycle.");
+    }
 }
@@ -0,0 +1,14 @@
+/**
+ * Handles one kind of data or action request for a Subsystem. Handlers are
+ * bound to a single identifier with <code>Subsystem.onDataRequest</code> or
+ * <code>Subsystem.onActionRequest</code>, so they don't need to check the
+ * identifier of the message they're given.
+ */
+public interface MsgHandler {
+    /**
+     * Responds to or acts on a request.
+     *
+     * @param message The received request
+     */
+    void handle(Msg message);
+}
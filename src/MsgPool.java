@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Manager-owned supply of reusable messages. Subsystems lease messages while
+ * sending requests, and every leased message is handed back automatically
+ * once the loop cycle's cleanup is done. A Subsystem must therefore not hold
+ * onto a leased message past the end of the cycle it was leased in.
+ */
+final class MsgPool {
+    /**
+     * Messages available for leasing, with the ones leased this cycle at the
+     * front.
+     */
+    private Msg[] messages = new Msg[64];
+    /**
+     * Number of messages leased so far this cycle.
+     */
+    private int leased = 0;
+    /**
+     * Whether recycled messages are retired and poisoned instead of reused, so
+     * that any later use of them can be caught.
+     */
+    private boolean debug = false;
+    /**
+     * Whether Subsystems may lease from several threads at the same time, which
+     * is only the case in the Manager's parallel mode. Otherwise, leasing
+     * doesn't lock.
+     */
+    private boolean shared = false;
+
+    /**
+     * Hands out a cleared message for use until the end of this loop cycle.
+     *
+     * @param identifier Identifier to give the message
+     * @return Leased message
+     */
+    Msg lease(Enum identifier) {
+        if (!shared)
+            return take(identifier);
+        synchronized (this) {
+            return take(identifier);
+        }
+    }
+
+    private Msg take(Enum identifier) {
+        if (leased == messages.length)
+            messages = Arrays.copyOf(messages, leased * 2);
+        Msg message = messages[leased];
+        if (message == null)
+            messages[leased] = message = new Msg(identifier);
+        else
+            message.identifier = identifier;
+        leased++;
+        return message;
+    }
+
+    /**
+     * Takes back every message leased this cycle. In debug mode, the messages
+     * are marked as recycled and replaced with new ones instead of reused. This
+     * is only called on the loop thread after every phase has finished, so it
+     * never runs alongside a lease.
+     */
+    void recycleAll() {
+        for (int i = 0; i < leased; i++) {
+            if (debug) {
+                messages[i].recycle();
+                messages[i] = null;
+            } else {
+                messages[i].clear();
+            }
+        }
+        leased = 0;
+    }
+
+    /**
+     * @return Number of messages leased so far this cycle
+     */
+    int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @param debug Whether to catch use of messages after they are recycled
+     */
+    void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Must be called between loop cycles, like the switch to or from parallel
+     * mode that it follows.
+     *
+     * @param shared Whether messages may be leased from several threads at the
+     *               same time
+     */
+    void setShared(boolean shared) {
+        this.shared = shared;
+    }
+}
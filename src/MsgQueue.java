@@ -0,0 +1,107 @@
+/**
+ * First-in first-out ring buffer of messages used as a Subsystem's inbox.
+ * Adding and removing are a couple of array stores, messages come back out in
+ * arrival order, and the buffer only grows (doubling) when it overflows. Not
+ * thread-safe on its own; the owning Subsystem synchronizes access.
+ */
+final class MsgQueue {
+    private Msg[] slots;
+    /**
+     * Index of the oldest message.
+     */
+    private int head = 0;
+    private int size = 0;
+    /**
+     * Number of times the buffer was full and had to grow.
+     */
+    private long overflows = 0;
+    /**
+     * Largest number of messages held at once.
+     */
+    private int highWaterMark = 0;
+
+    /**
+     * @param capacity Number of messages to make room for up front, rounded up
+     *                 to a power of two
+     */
+    MsgQueue(int capacity) {
+        slots = new Msg[roundCapacity(capacity)];
+    }
+
+    /**
+     * Adds a message at the back, growing the buffer if it is full.
+     *
+     * @param message Message to add
+     */
+    void add(Msg message) {
+        if (size == slots.length) {
+            overflows++;
+            resize(slots.length * 2);
+        }
+        slots[(head + size) & (slots.length - 1)] = message;
+        if (++size > highWaterMark)
+            highWaterMark = size;
+    }
+
+    /**
+     * Removes the message at the front.
+     *
+     * @return The oldest message, or null if there are none
+     */
+    Msg poll() {
+        if (size == 0)
+            return null;
+        Msg message = slots[head];
+        slots[head] = null;
+        head = --size == 0 ? 0 : (head + 1) & (slots.length - 1);
+        return message;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    long getOverflows() {
+        return overflows;
+    }
+
+    int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Makes sure there is room for at least the given number of messages
+     * without growing.
+     *
+     * @param capacity Minimum capacity, rounded up to a power of two
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > slots.length)
+            resize(roundCapacity(capacity));
+    }
+
+    /**
+     * Moves the held messages to the front of a new array of the given size.
+     */
+    private void resize(int capacity) {
+        Msg[] resized = new Msg[capacity];
+        for (int i = 0; i < size; i++)
+            resized[i] = slots[(head + i) & (slots.length - 1)];
+        slots = resized;
+        head = 0;
+    }
+
+    private static int roundCapacity(int capacity) {
+        if (capacity <= 1)
+            return 1;
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Latest-value publish/subscribe slot for an object, such as a pose. Works
+ * like LongChannel, but since subscribers get a reference, the publisher
+ * should publish a new or immutable object rather than change a published one
+ * in place. Get one with <code>Subsystem.objectChannel</code>.
+ *
+ * @param <T> Type of the published value
+ */
+public final class ObjectChannel<T> {
+    private final Subsystem publisher;
+    private T value;
+    private long version = 0;
+
+    ObjectChannel(Subsystem publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Replaces the value. Only the owning Subsystem should call this.
+     *
+     * @param value New value
+     */
+    public void publish(T value) {
+        this.value = value;
+        version++;
+    }
+
+    /**
+     * @return The most recently published value, or null if there is none yet
+     */
+    public T get() {
+        return value;
+    }
+
+    /**
+     * @return Number of times a value has been published, which subscribers
+     * can compare between cycles to tell whether the value is fresh
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Subsystem which publishes to this channel
+     */
+    public Subsystem getPublisher() {
+        return publisher;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manager-owned stage run right after <code>publishControl</code> which writes
+ * all of the Actuators' staged outputs through one ActuatorDriver. Outputs
+ * which haven't changed by more than their deadband are skipped, and the
+ * driver is flushed once per cycle only if something was written.
+ */
+final class OutputStage {
+    private final Actuator[] actuators;
+    private ActuatorDriver driver;
+    private long writes = 0;
+    private long skipped = 0;
+
+    /**
+     * Collects the Actuators of all of the given Subsystems.
+     *
+     * @param subsystems Subsystems to collect from
+     * @throws IllegalArgumentException If two Actuators share a port.
+     */
+    OutputStage(Subsystem[] subsystems) {
+        List<Actuator> actuators = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        for (Subsystem subsystem : subsystems) {
+            for (Actuator actuator : subsystem.getActuators()) {
+                if (ports.contains(actuator.getPort()))
+                    throw new IllegalArgumentException(
+                            "Actuator port " + actuator.getPort() + " is used more than once.");
+                ports.add(actuator.getPort());
+                actuators.add(actuator);
+            }
+        }
+        this.actuators = actuators.toArray(new Actuator[0]);
+    }
+
+    /**
+     * @param driver Driver to write through, or null to not write at all
+     */
+    void setDriver(ActuatorDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Writes the outputs which need writing and flushes the driver.
+     */
+    void flush() {
+        if (driver == null)
+            return;
+        int written = 0;
+        for (int i = 0; i < actuators.length; i++)
+            if (actuators[i].flushTo(driver))
+                written++;
+        writes += written;
+        skipped += actuators.length - written;
+        if (written > 0)
+            driver.flush();
+    }
+
+    /**
+     * @return All Actuators, in the order they are written
+     */
+    Actuator[] getActuators() {
+        return actuators;
+    }
+
+    /**
+     * @return Number of outputs written
+     */
+    long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return Number of outputs not written because they hadn't changed enough
+     * (or were never staged)
+     */
+    long getSkipped() {
+        return skipped;
+    }
+}
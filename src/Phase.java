@@ -0,0 +1,133 @@
+/**
+ * One of the per-Subsystem steps the Manager runs during a loop cycle. Each
+ * constant knows which Subsystem method it calls so that the Manager can walk
+ * an array of Subsystems with a single plain loop per phase instead of
+ * recursing through the hierarchy. Every phase except receiving requests is
+ * skipped for Subsystems which aren't due in the current cycle because of
+ * their rate divisor, and receiving is skipped for Subsystems with nothing in
+ * their inbox.
+ */
+public enum Phase {
+    /**
+     * Basic data update. Run in post-order so owned Subsystems finish first.
+     */
+    UPDATE_SELF_DATA(false, "updateSelfData") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.updateSelfData();
+        }
+    },
+    /**
+     * Sending of data requests, in arbitrary order.
+     */
+    SEND_DATA_REQUEST(true, "sendDataRequest") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.sendDataRequest();
+        }
+    },
+    /**
+     * Responding to all received data requests, in arbitrary order.
+     */
+    RECEIVE_DATA_REQUESTS(true, null) {
+        void run(Subsystem subsystem) {
+            if (subsystem.hasRequests())
+                subsystem.receiveDataRequestMessages();
+        }
+    },
+    /**
+     * Logic update, in arbitrary order.
+     */
+    UPDATE_LOGIC(true, "updateLogic") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.updateLogic();
+        }
+    },
+    /**
+     * Sending of action requests. Run one level of the hierarchy at a time so
+     * owners send before the Subsystems they own, in arbitrary order within a
+     * level.
+     */
+    SEND_ACTION_REQUEST(true, "sendActionRequest") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.sendActionRequest();
+        }
+    },
+    /**
+     * Responding to received action requests. Run one level at a time as part
+     * of the cascade and then once more over everything, in arbitrary order
+     * within each pass.
+     */
+    RECEIVE_ACTION_REQUESTS(true, null) {
+        void run(Subsystem subsystem) {
+            if (subsystem.hasRequests())
+                subsystem.receiveActionRequestMessages();
+        }
+    },
+    /**
+     * Control model update, in arbitrary order.
+     */
+    UPDATE_CONTROL_MODELS(true, "updateControlModels") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.updateControlModels();
+        }
+    },
+    /**
+     * Pushing of outputs to physical actuators, in arbitrary order.
+     */
+    PUBLISH_CONTROL(false, "publishControl") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.publishControl();
+        }
+    },
+    /**
+     * End of loop cleanup, in arbitrary order.
+     */
+    CLEANUP(true, "cleanup") {
+        void run(Subsystem subsystem) {
+            if (subsystem.due)
+                subsystem.cleanup();
+        }
+    };
+
+    /**
+     * Whether this phase has no ordering requirements between the Subsystems
+     * in any one array it is run over and makes no state changes in other
+     * Subsystems, which means it may be spread across threads.
+     */
+    final boolean parallel;
+    /**
+     * Name of the overridable Subsystem method this phase calls, or null for
+     * the request receiving phases, which every Subsystem takes part in.
+     */
+    final String hook;
+
+    Phase(boolean parallel, String hook) {
+        this.parallel = parallel;
+        this.hook = hook;
+    }
+
+    /**
+     * Calls the method this phase stands for on the given Subsystem.
+     *
+     * @param subsystem Subsystem to run this phase on
+     */
+    abstract void run(Subsystem subsystem);
+
+    /**
+     * Checks whether <code>run</code> would actually call anything on the
+     * given Subsystem this cycle, which is whether the Subsystem is due for
+     * the phases with a hook and whether it has requests for the receiving
+     * phases.
+     *
+     * @param subsystem Subsystem to check
+     * @return Whether running this phase on the Subsystem does anything
+     */
+    boolean isActive(Subsystem subsystem) {
+        return hook == null ? subsystem.hasRequests() : subsystem.due;
+    }
+}
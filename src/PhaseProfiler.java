@@ -0,0 +1,81 @@
+import java.io.PrintStream;
+
+/**
+ * Optional Manager instrumentation which times every phase call on every
+ * Subsystem and keeps the timings in one histogram per Subsystem and phase.
+ * Everything is allocated when profiling is turned on, so recording doesn't
+ * allocate.
+ */
+final class PhaseProfiler {
+    private final ExecutionPlan plan;
+    /**
+     * Histograms indexed by Subsystem plan index, then by phase ordinal.
+     */
+    private final LatencyHistogram[][] histograms;
+    /**
+     * Timings of whole loop cycles.
+     */
+    final LatencyHistogram loopHistogram = new LatencyHistogram();
+
+    PhaseProfiler(ExecutionPlan plan) {
+        this.plan = plan;
+        histograms = new LatencyHistogram[plan.size()][Phase.values().length];
+        for (LatencyHistogram[] row : histograms)
+            for (int i = 0; i < row.length; i++)
+                row[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Runs a phase on a Subsystem and records how long it took. Nothing is
+     * recorded when the phase is skipped for the Subsystem (because it isn't
+     * due or has nothing to receive), so that the skipped cycles of a
+     * rate-divided Subsystem don't drag its timings toward zero.
+     *
+     * @param phase     Phase to run
+     * @param subsystem Subsystem to run it on
+     */
+    void run(Phase phase, Subsystem subsystem) {
+        if (!phase.isActive(subsystem))
+            return;
+        long start = System.nanoTime();
+        phase.run(subsystem);
+        histograms[subsystem.getPlanIndex()][phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * @return Histogram for the given Subsystem and phase
+     */
+    LatencyHistogram get(Subsystem subsystem, Phase phase) {
+        return histograms[subsystem.getPlanIndex()][phase.ordinal()];
+    }
+
+    /**
+     * Prints one line per Subsystem and phase which ran since the last reset,
+     * followed by the whole loop, and then resets every histogram.
+     *
+     * @param out Stream to print to
+     */
+    void dump(PrintStream out) {
+        out.printf("%-32s %-24s %10s %10s %10s %10s%n",
+                "subsystem", "phase", "count", "p50 ns", "p99 ns", "max ns");
+        for (int i = 0; i < histograms.length; i++) {
+            String name = plan.flat[i].getClass().getSimpleName() + "#" + i;
+            for (Phase phase : Phase.values())
+                print(out, name, phase.name(), histograms[i][phase.ordinal()]);
+        }
+        print(out, "Manager", "loop", loopHistogram);
+        for (LatencyHistogram[] row : histograms)
+            for (LatencyHistogram histogram : row)
+                histogram.reset();
+        loopHistogram.reset();
+    }
+
+    private static void print(PrintStream out, String name, String phase,
+                              LatencyHistogram histogram) {
+        if (histogram.getCount() == 0)
+            return;
+        out.printf("%-32s %-24s %10d %10d %10d %10d%n", name, phase,
+                histogram.getCount(), histogram.getPercentile(50),
+                histogram.getPercentile(99), histogram.getMax());
+    }
+}
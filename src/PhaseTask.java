@@ -0,0 +1,70 @@
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task which runs one Phase over a range of a Subsystem array. The
+ * tasks for an array are split once up front into a fixed tree and then
+ * reinitialized and reused on every loop cycle, so running a phase in parallel
+ * doesn't create new tasks each time.
+ */
+final class PhaseTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final Subsystem[] subsystems;
+    private final int from;
+    private final int to;
+    /**
+     * Halves of this range, or null if this task runs its range directly.
+     */
+    private final PhaseTask left, right;
+    /**
+     * Phase to run on the next invocation. Set by the Manager on the root task
+     * and handed down before forking.
+     */
+    Phase phase;
+    /**
+     * Profiler to time each call with, or null if profiling is off. Handed down
+     * along with <code>phase</code>.
+     */
+    PhaseProfiler profiler;
+
+    /**
+     * Builds the task tree for a range of Subsystems.
+     *
+     * @param subsystems Subsystems to run phases on
+     * @param from       First index (inclusive)
+     * @param to         Last index (exclusive)
+     * @param grain      Largest range which is run directly without splitting
+     */
+    PhaseTask(Subsystem[] subsystems, int from, int to, int grain) {
+        this.subsystems = subsystems;
+        this.from = from;
+        this.to = to;
+        if (to - from > grain) {
+            int middle = (from + to) >>> 1;
+            left = new PhaseTask(subsystems, from, middle, grain);
+            right = new PhaseTask(subsystems, middle, to, grain);
+        } else {
+            left = null;
+            right = null;
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (left == null) {
+            if (profiler == null)
+                for (int i = from; i < to; i++)
+                    phase.run(subsystems[i]);
+            else
+                for (int i = from; i < to; i++)
+                    profiler.run(phase, subsystems[i]);
+            return;
+        }
+        left.reinitialize();
+        right.reinitialize();
+        left.phase = phase;
+        right.phase = phase;
+        left.profiler = profiler;
+        right.profiler = profiler;
+        invokeAll(left, right);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * A request waiting in the Manager's timing wheel to be delivered to a
+ * Subsystem at a later loop cycle, possibly repeatedly. Returned by
+ * <code>Manager.scheduleAction</code> and
+ * <code>Manager.scheduleRepeatingAction</code> so that it can be cancelled.
+ */
+public final class ScheduledRequest {
+    final TimingWheel wheel;
+    final Subsystem target;
+    final Msg message;
+    /**
+     * Number of wheel ticks between deliveries, or 0 for a single delivery.
+     */
+    final long periodTicks;
+    /**
+     * Wheel tick this is due at.
+     */
+    long deadlineTick;
+    /**
+     * Neighbors in the wheel slot list this is in.
+     */
+    ScheduledRequest previous, next;
+    /**
+     * Wheel level and slot this is in while scheduled.
+     */
+    int level, slot;
+    /**
+     * Whether this is currently in a wheel slot.
+     */
+    boolean scheduled = false;
+    private boolean cancelled = false;
+
+    ScheduledRequest(TimingWheel wheel, Subsystem target, Msg message,
+                     long deadlineTick, long periodTicks) {
+        this.wheel = wheel;
+        this.target = target;
+        this.message = message;
+        this.deadlineTick = deadlineTick;
+        this.periodTicks = periodTicks;
+    }
+
+    /**
+     * Stops any further deliveries of this request. Deliveries which already
+     * happened are not undone.
+     */
+    public void cancel() {
+        synchronized (wheel) {
+            cancelled = true;
+            wheel.remove(this);
+        }
+    }
+
+    /**
+     * @return Whether <code>cancel</code> has been called
+     */
+    public boolean isCancelled() {
+        synchronized (wheel) {
+            return cancelled;
+        }
+    }
+
+    /**
+     * @return Whether this will be delivered again (false once a single
+     * delivery has happened or this was cancelled)
+     */
+    public boolean isPending() {
+        synchronized (wheel) {
+            return scheduled;
+        }
+    }
+}
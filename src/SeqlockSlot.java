@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latest-value slot for a fixed number of doubles plus a timestamp,
+ * written by one thread and read by others. The writer makes the sequence
+ * number odd while it writes and even again when done; a reader copies the
+ * values and retries if the sequence was odd or changed in the meantime. The
+ * writer never waits for readers, and readers never see a half-written
+ * sample.
+ */
+final class SeqlockSlot {
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Timestamp at index 0, then the raw bits of each value.
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * @param width Number of values in a sample
+     */
+    SeqlockSlot(int width) {
+        words = new AtomicLongArray(width + 1);
+    }
+
+    /**
+     * Replaces the sample. Must only be called from one thread.
+     *
+     * @param values    New values, at least as many as the slot's width
+     * @param timestamp Time the values were taken
+     */
+    void write(double[] values, long timestamp) {
+        long start = sequence.get();
+        sequence.set(start + 1);
+        words.set(0, timestamp);
+        for (int i = 1; i < words.length(); i++)
+            words.set(i, Double.doubleToRawLongBits(values[i - 1]));
+        sequence.set(start + 2);
+    }
+
+    /**
+     * Copies out the latest complete sample.
+     *
+     * @param values Array to copy the values into
+     * @return Timestamp of the sample
+     */
+    long read(double[] values) {
+        while (true) {
+            long start = sequence.get();
+            if ((start & 1) != 0)
+                continue;
+            long timestamp = words.get(0);
+            for (int i = 1; i < words.length(); i++)
+                values[i - 1] = Double.longBitsToDouble(words.get(i));
+            if (sequence.get() == start)
+                return timestamp;
+        }
+    }
+
+    /**
+     * @return Number of completed writes so far
+     */
+    long getWrites() {
+        return sequence.get() >>> 1;
+    }
+}
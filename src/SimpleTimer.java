@@ -1,9 +1,15 @@
 public class SimpleTimer extends Subsystem {
-    private long startTime = System.nanoTime();
+    private long startTime = 0;
+    private boolean started = false;
     private long time = 0;
+    private final LongChannel timeChannel = longChannel(Data.SIMPLE_TIME);
 
     public SimpleTimer(Subsystem owner) {
         super(owner);
+        onDataRequest(Data.SIMPLE_TIME, message -> message.setLong(time));
+        onActionRequest(Action.RESET, message -> startTime = now());
+        recordLong("time", () -> time);
+        shareLong("time", () -> time);
     }
 
     public long getTime() {
@@ -11,18 +17,12 @@ public class SimpleTimer extends Subsystem {
     }
 
     void updateSelfData() {
-        time = System.nanoTime() - startTime;
-    }
-
-    void receiveDataRequest(Msg message) {
-        if (message.identifier == Data.SIMPLE_TIME)
-            message.data = time;
-    }
-
-    void receiveActionRequest(Msg message) {
-        if (message.identifier == Action.RESET)
-            startTime = System.nanoTime();
-
+        if (!started) {
+            startTime = now();
+            started = true;
+        }
+        time = now() - startTime;
+        timeChannel.publish(time);
     }
 
     public enum Data {SIMPLE_TIME}
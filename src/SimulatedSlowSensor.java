@@ -0,0 +1,34 @@
+/**
+ * Stand-in for a slow hardware sensor for local testing. Every read blocks
+ * for a fixed time, like a slow bus transaction would, and then returns a
+ * sine wave of the time so that changing values can be seen.
+ */
+public class SimulatedSlowSensor extends AsyncSensor {
+    private final long latencyMillis;
+    private final double frequency;
+
+    /**
+     * @param owner         The Subsystem which holds this Subsystem in its
+     *                      subsystems Set
+     * @param latencyMillis How long each read blocks for
+     * @param frequency     Frequency of the simulated signal in hertz
+     */
+    public SimulatedSlowSensor(Subsystem owner, long latencyMillis, double frequency) {
+        super(owner, 1, 0);
+        this.latencyMillis = latencyMillis;
+        this.frequency = frequency;
+    }
+
+    @Override
+    void acquire(double[] values) throws InterruptedException {
+        Thread.sleep(latencyMillis);
+        values[0] = Math.sin(2 * Math.PI * frequency * System.nanoTime() / 1e9);
+    }
+
+    /**
+     * @return The latest simulated reading
+     */
+    public double getValue() {
+        return getSample(0);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Virtual time source for simulation which moves forward by a fixed step each
+ * time it is read. Since the Manager's clock reads it once per loop cycle,
+ * every cycle is exactly one step long no matter how long it actually took,
+ * so a run is reproducible and can go much faster than real time.
+ */
+public class SimulatedTimeSource implements TimeSource {
+    private final long stepNanos;
+    private long nanos;
+
+    /**
+     * @param stepNanos Simulated length of each loop cycle in nanoseconds
+     */
+    public SimulatedTimeSource(long stepNanos) {
+        this(stepNanos, 0);
+    }
+
+    /**
+     * @param stepNanos  Simulated length of each loop cycle in nanoseconds
+     * @param startNanos Time before the first read
+     */
+    public SimulatedTimeSource(long stepNanos, long startNanos) {
+        if (stepNanos <= 0)
+            throw new IllegalArgumentException("Step must be positive.");
+        this.stepNanos = stepNanos;
+        this.nanos = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        nanos += stepNanos;
+        return nanos;
+    }
+
+    /**
+     * Moves time forward without running a cycle, such as to simulate the
+     * robot sitting disabled.
+     *
+     * @param nanos Time to skip in nanoseconds
+     */
+    public void advance(long nanos) {
+        this.nanos += nanos;
+    }
+}
@@ -1,5 +1,10 @@
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * The template for all Subsystems in the hierarchy of control of the robot. The
@@ -16,6 +21,10 @@ import java.util.Set;
  * effects as any state updates must be handled through the message system.
  */
 public abstract class Subsystem {
+    /**
+     * Number of messages each inbox has room for before it has to grow.
+     */
+    static final int DEFAULT_INBOX_CAPACITY = 16;
     /**
      * The Subsystem which contains this Subsystem in its subsystems Set. There
      * shall be one and only one (unless this is a top-level Subsystem---in this
@@ -26,13 +35,91 @@ public abstract class Subsystem {
      * All Subsystems this Subsystem is in charge of. For example, an Arm
      * Subsystem may have a few joint Subsystems and a collector Subsystem with
      * each of those having more, more atomic Subsystems in their subsystems
-     * Sets.
+     * Sets. The Set keeps the order Subsystems were added in so that the
+     * Manager's execution plan comes out the same on every run.
      */
     private Set<Subsystem> subsystems;
     /**
-     * Incoming Data and Action request messages.
+     * Incoming Data and Action request messages, in arrival order. The buffer
+     * is preallocated and only grows if it overflows, so adding and removing
+     * messages doesn't allocate.
+     */
+    private MsgQueue requestInbox;
+    /**
+     * Whether other threads may use <code>requestInbox</code> at the same
+     * time, which is only the case in the Manager's parallel mode. Otherwise,
+     * the inbox is used without locking.
+     */
+    private boolean inboxShared = false;
+    /**
+     * Lock-free inbox for requests posted from threads other than the loop
+     * thread, or null if cross-thread posting isn't enabled.
+     */
+    private ConcurrentMsgQueue crossThreadInbox;
+    /**
+     * The Manager running this Subsystem, set when the Manager is constructed.
+     */
+    private Manager manager;
+    /**
+     * Position of this Subsystem in the Manager's execution plan, used to
+     * index per-Subsystem tables in the Manager.
+     */
+    private int planIndex = -1;
+    /**
+     * This Subsystem's own phases only run on every <code>rateDivisor</code>th
+     * loop cycle, starting from cycle <code>rateOffset</code>.
+     */
+    private int rateDivisor = 1;
+    private int rateOffset = 0;
+    /**
+     * Whether this Subsystem's own phases run in the current loop cycle.
+     */
+    boolean due = true;
+    /**
+     * Handlers for data and action requests, looked up by message identifier.
+     */
+    private final EnumIndex<MsgHandler> dataHandlers = new EnumIndex<>();
+    private final EnumIndex<MsgHandler> actionHandlers = new EnumIndex<>();
+    /**
+     * Channels this Subsystem publishes, looked up by identifier.
+     */
+    private final EnumIndex<Object> channels = new EnumIndex<>();
+    /**
+     * Physical outputs this Subsystem stages values on.
+     */
+    private final List<Actuator> actuators = new ArrayList<>();
+    /**
+     * Values this Subsystem has registered for telemetry.
+     */
+    private final List<TelemetryField> telemetryFields = new ArrayList<>();
+    /**
+     * Values this Subsystem has registered for the shared-memory blackboard.
+     */
+    private final List<TelemetryField> sharedFields = new ArrayList<>();
+    /**
+     * First answer this cycle for each data identifier with caching turned on,
+     * or null if caching isn't used.
+     */
+    private EnumIndex<CachedResponse> responseCache;
+    /**
+     * Number of data requests answered from the cache.
+     */
+    private long cachedResponses = 0;
+    /**
+     * Number of received requests which had no bound handler.
+     */
+    private long unhandledDataRequests = 0;
+    private long unhandledActionRequests = 0;
+    /**
+     * Values passed through <code>input</code> this cycle while recording, or
+     * the values to hand back this cycle while replaying.
      */
-    private Set<Msg> requestInbox;
+    long[] inputs = new long[8];
+    int inputCount = 0;
+    /**
+     * Next value of <code>inputs</code> to hand back while replaying.
+     */
+    int inputCursor = 0;
 
     /**
      * Ensures that when the default constructor is implicitly called at the
@@ -51,8 +138,8 @@ public abstract class Subsystem {
      */
     public Subsystem(Subsystem owner) {
         this.owner = owner;
-        subsystems = new HashSet<>();
-        requestInbox = new HashSet<>();
+        subsystems = new LinkedHashSet<>();
+        requestInbox = new MsgQueue(DEFAULT_INBOX_CAPACITY);
     }
 
     /**
@@ -66,8 +153,6 @@ public abstract class Subsystem {
         subsystems.add(subsystem);
     }
 
-    //TODO: make some check not only for an owner, but only one actual owner.
-
     /**
      * Verifies that this Subsystem and its subsystems have a properly assigned
      * owner.
@@ -104,46 +189,549 @@ public abstract class Subsystem {
     }
 
     /**
-     * Puts together all Subsystems recursively contained in <code>this.subsystems</code>.
+     * Binds the handler for data requests with the given identifier, replacing
+     * any previous one. This is normally done in the extending class's
+     * constructor, for example
+     * <code>onDataRequest(Data.POSITION, message -> message.setDouble(position));</code>
      *
-     * @return Set of all Subsystems contained by this (not including this itself)
+     * @param identifier Identifier of the data requests to handle
+     * @param handler    Handler which fills in the requested data
      */
-    Set<Subsystem> getSubsystems() {
-        Set<Subsystem> subsystems = new HashSet<>();
-        for (Subsystem subsystem : subsystems) {
-            subsystems.addAll(subsystem.getSubsystems());
-            subsystems.add(subsystem);
+    final public void onDataRequest(Enum identifier, MsgHandler handler) {
+        dataHandlers.put(identifier, handler);
+    }
+
+    /**
+     * Binds the handler for action requests with the given identifier,
+     * replacing any previous one.
+     *
+     * @param identifier Identifier of the action requests to handle
+     * @param handler    Handler which carries out the requested action
+     */
+    final public void onActionRequest(Enum identifier, MsgHandler handler) {
+        actionHandlers.put(identifier, handler);
+    }
+
+    /**
+     * Gets this Subsystem's long channel for an identifier, creating it the
+     * first time. Publishers normally get their channels in their constructor
+     * and publish during <code>updateSelfData</code>. Subscribers get the
+     * channel once from the publishing Subsystem (for example
+     * <code>timer.longChannel(SimpleTimer.Data.SIMPLE_TIME)</code>) and then
+     * read it in any later phase, replacing a data request per reader per
+     * cycle with a single write.
+     *
+     * @param identifier Identifier of the published value, normally from the
+     *                   publishing class's Data enum
+     * @return The channel for that identifier
+     * @throws IllegalArgumentException If the identifier already has a
+     *                                  channel of another type.
+     */
+    final public LongChannel longChannel(Enum identifier) {
+        Object channel = channels.get(identifier);
+        if (channel == null)
+            channels.put(identifier, channel = new LongChannel(this));
+        return castChannel(LongChannel.class, channel, identifier);
+    }
+
+    /**
+     * Gets this Subsystem's double channel for an identifier, creating it the
+     * first time. See <code>longChannel</code> for how channels are used.
+     *
+     * @param identifier Identifier of the published value
+     * @return The channel for that identifier
+     * @throws IllegalArgumentException If the identifier already has a
+     *                                  channel of another type.
+     */
+    final public DoubleChannel doubleChannel(Enum identifier) {
+        Object channel = channels.get(identifier);
+        if (channel == null)
+            channels.put(identifier, channel = new DoubleChannel(this));
+        return castChannel(DoubleChannel.class, channel, identifier);
+    }
+
+    /**
+     * Gets this Subsystem's object channel for an identifier, creating it the
+     * first time. See <code>longChannel</code> for how channels are used.
+     *
+     * @param identifier Identifier of the published value
+     * @param <T>        Type of the published value
+     * @return The channel for that identifier
+     * @throws IllegalArgumentException If the identifier already has a
+     *                                  channel of another type.
+     */
+    @SuppressWarnings("unchecked")
+    final public <T> ObjectChannel<T> objectChannel(Enum identifier) {
+        Object channel = channels.get(identifier);
+        if (channel == null)
+            channels.put(identifier, channel = new ObjectChannel<T>(this));
+        return castChannel(ObjectChannel.class, channel, identifier);
+    }
+
+    private static <C> C castChannel(Class<C> type, Object channel, Enum identifier) {
+        if (!type.isInstance(channel))
+            throw new IllegalArgumentException("Channel " + identifier
+                    + " is a " + channel.getClass().getSimpleName() + ", not a "
+                    + type.getSimpleName() + ".");
+        return type.cast(channel);
+    }
+
+    /**
+     * Creates an Actuator for one of this Subsystem's physical outputs. The
+     * Manager collects Actuators when it is constructed, so they should be
+     * created in the Subsystem's constructor. Values staged on them in
+     * <code>publishControl</code> are written by the Manager's output stage
+     * afterward.
+     *
+     * @param port     Port of the output, unique across all Subsystems
+     * @param deadband Smallest change in value which is worth writing
+     * @return The new Actuator
+     * @throws IllegalArgumentException If the port or deadband is negative.
+     */
+    final public Actuator actuator(int port, double deadband) {
+        Actuator actuator = new Actuator(this, port, deadband);
+        actuators.add(actuator);
+        return actuator;
+    }
+
+    /**
+     * Registers a long value to be written to telemetry at the end of every
+     * loop cycle while the Manager is recording. Fields should be registered
+     * in the Subsystem's constructor, since the columns are fixed when
+     * recording starts. The column is named after this Subsystem's class and
+     * position in the execution plan, followed by <code>name</code>.
+     *
+     * @param name   Name of the value within this Subsystem
+     * @param source Reads the current value, without allocating
+     */
+    final public void recordLong(String name, LongSupplier source) {
+        telemetryFields.add(new TelemetryField(name, source));
+    }
+
+    /**
+     * Registers a double value to be written to telemetry. See
+     * <code>recordLong</code>.
+     *
+     * @param name   Name of the value within this Subsystem
+     * @param source Reads the current value, without allocating
+     */
+    final public void recordDouble(String name, DoubleSupplier source) {
+        telemetryFields.add(new TelemetryField(name, source));
+    }
+
+    /**
+     * @return Telemetry fields registered by this Subsystem
+     */
+    final List<TelemetryField> getTelemetryFields() {
+        return telemetryFields;
+    }
+
+    /**
+     * Registers a long value to be mirrored into the Manager's shared-memory
+     * blackboard at the end of every loop cycle, where other processes can
+     * read it. Like telemetry fields, these should be registered in the
+     * constructor and are named after this Subsystem.
+     *
+     * @param name   Name of the value within this Subsystem
+     * @param source Reads the current value, without allocating
+     */
+    final public void shareLong(String name, LongSupplier source) {
+        sharedFields.add(new TelemetryField(name, source));
+    }
+
+    /**
+     * Registers a double value to be mirrored into the blackboard. See
+     * <code>shareLong</code>.
+     *
+     * @param name   Name of the value within this Subsystem
+     * @param source Reads the current value, without allocating
+     */
+    final public void shareDouble(String name, DoubleSupplier source) {
+        sharedFields.add(new TelemetryField(name, source));
+    }
+
+    /**
+     * @return Blackboard values registered by this Subsystem
+     */
+    final List<TelemetryField> getSharedFields() {
+        return sharedFields;
+    }
+
+    /**
+     * @return Actuators created by this Subsystem
+     */
+    final List<Actuator> getActuators() {
+        return actuators;
+    }
+
+    /**
+     * Turns on per-cycle caching of the answer to data requests with the given
+     * identifier. When several Subsystems ask for the same thing in one cycle,
+     * the answer is only worked out for the first request, and the rest get a
+     * copy of its data, result, and primitive payloads. The cache is only good
+     * for the cycle it was filled in, so it starts over after each cleanup.
+     * This is only correct for requests whose answer doesn't depend on what
+     * the requester put in the message.
+     *
+     * @param identifier Identifier of the data requests to cache
+     */
+    final public void cacheDataResponses(Enum identifier) {
+        if (responseCache == null)
+            responseCache = new EnumIndex<>();
+        responseCache.put(identifier, new CachedResponse());
+    }
+
+    /**
+     * @return Number of data requests answered from the per-cycle cache
+     */
+    final public long getCachedResponseCount() {
+        return cachedResponses;
+    }
+
+    /**
+     * @return Number of data requests received without a bound handler
+     */
+    final public long getUnhandledDataRequests() {
+        return unhandledDataRequests;
+    }
+
+    /**
+     * @return Number of action requests received without a bound handler
+     */
+    final public long getUnhandledActionRequests() {
+        return unhandledActionRequests;
+    }
+
+    /**
+     * Makes this Subsystem run its own phases (everything except receiving
+     * requests) only on every <code>divisor</code>th loop cycle. For example,
+     * a battery monitor in a 200 Hz loop would use 20 to run at 10 Hz.
+     * Requests sent to it are still answered every cycle, using whatever data
+     * it last updated. This must be called in the constructor, since the
+     * Manager spreads Subsystems with the same divisor over different cycles
+     * when it is constructed.
+     *
+     * @param divisor Number of loop cycles per run of this Subsystem
+     * @throws IllegalStateException If a Manager has already been constructed
+     *                               with this Subsystem.
+     */
+    final public void setRateDivisor(int divisor) {
+        if (divisor < 1)
+            throw new IllegalArgumentException("Rate divisor must be at least 1.");
+        if (manager != null)
+            throw new IllegalStateException(
+                    "Rate divisor can't change once a Manager runs this Subsystem: " + this);
+        rateDivisor = divisor;
+    }
+
+    /**
+     * @return Number of loop cycles per run of this Subsystem
+     */
+    final public int getRateDivisor() {
+        return rateDivisor;
+    }
+
+    /**
+     * Sets which cycle within each group of <code>rateDivisor</code> cycles
+     * this Subsystem runs in.
+     *
+     * @param offset Cycle offset, from 0 to <code>rateDivisor - 1</code>
+     */
+    final void setRateOffset(int offset) {
+        rateOffset = offset;
+    }
+
+    /**
+     * Works out whether this Subsystem's own phases run in the given cycle.
+     *
+     * @param cycle Number of the loop cycle about to run
+     */
+    final void updateDue(long cycle) {
+        due = (cycle + rateOffset) % rateDivisor == 0;
+    }
+
+    /**
+     * Lets other threads (such as a computer vision or networking thread)
+     * post requests to this Subsystem with <code>post</code>. This should be
+     * called in the constructor, before any other thread can see this
+     * Subsystem.
+     *
+     * @param capacity Maximum number of posted requests waiting at once
+     */
+    final public void enableCrossThreadInbox(int capacity) {
+        crossThreadInbox = new ConcurrentMsgQueue(capacity);
+    }
+
+    /**
+     * Posts an action request from a thread other than the loop thread
+     * without locking. Posted requests are picked up the next time this
+     * Subsystem receives action requests and are handled just like requests
+     * sent with <code>request</code>. Messages leased from the Manager's pool
+     * must not be posted since the poster doesn't know when the cycle ends.
+     * While the Manager is replaying recorded inputs, posts are turned away
+     * since the recorded ones are delivered instead.
+     *
+     * @param message Requested action
+     * @return Whether the request was accepted (false if too many are already
+     * waiting, in which case the caller should retry later or drop it)
+     * @throws IllegalStateException If the cross-thread inbox isn't enabled.
+     */
+    final public boolean post(Msg message) {
+        if (crossThreadInbox == null)
+            throw new IllegalStateException(
+                    "Cross-thread inbox is not enabled for " + this);
+        if (manager != null && manager.isReplaying())
+            return false;
+        return crossThreadInbox.offer(message);
+    }
+
+    /**
+     * Queues a recorded cross-thread request during a replay.
+     *
+     * @param message Recorded request
+     * @throws IllegalStateException If the cross-thread inbox isn't enabled or
+     *                               is full.
+     */
+    final void replayPost(Msg message) {
+        if (crossThreadInbox == null || !crossThreadInbox.offer(message))
+            throw new IllegalStateException("Could not replay a posted request to " + this);
+    }
+
+    /**
+     * @return Number of posted requests turned away because the cross-thread
+     * inbox was full
+     */
+    final public long getCrossThreadRejections() {
+        return crossThreadInbox == null ? 0 : crossThreadInbox.getRejected();
+    }
+
+    /**
+     * @return Maximum number of posted requests waiting at once, or 0 if the
+     * cross-thread inbox isn't enabled
+     */
+    final int getCrossThreadCapacity() {
+        return crossThreadInbox == null ? 0 : crossThreadInbox.capacity();
+    }
+
+    /**
+     * @return Enum types this Subsystem has action request handlers for
+     */
+    final Class<?>[] getActionTypes() {
+        return actionHandlers.getTypes();
+    }
+
+    /**
+     * Makes room in the inbox for the given number of messages up front. This
+     * is worth calling in the constructor of Subsystems which expect a lot of
+     * requests per loop cycle so that the inbox doesn't have to grow.
+     *
+     * @param capacity Number of messages the inbox should hold without growing
+     */
+    final public void setInboxCapacity(int capacity) {
+        if (!inboxShared) {
+            requestInbox.ensureCapacity(capacity);
+            return;
         }
-        return subsystems;
+        synchronized (requestInbox) {
+            requestInbox.ensureCapacity(capacity);
+        }
+    }
+
+    /**
+     * @return Number of messages the inbox currently holds without growing
+     */
+    final public int getInboxCapacity() {
+        if (!inboxShared)
+            return requestInbox.capacity();
+        synchronized (requestInbox) {
+            return requestInbox.capacity();
+        }
+    }
+
+    /**
+     * @return Number of times the inbox was full and had to grow
+     */
+    final public long getInboxOverflows() {
+        if (!inboxShared)
+            return requestInbox.getOverflows();
+        synchronized (requestInbox) {
+            return requestInbox.getOverflows();
+        }
+    }
+
+    /**
+     * @return Largest number of messages the inbox has held at once
+     */
+    final public int getInboxHighWaterMark() {
+        if (!inboxShared)
+            return requestInbox.getHighWaterMark();
+        synchronized (requestInbox) {
+            return requestInbox.getHighWaterMark();
+        }
+    }
+
+    /**
+     * Connects this Subsystem to the Manager which will run it.
+     *
+     * @param manager   Manager running this Subsystem
+     * @param planIndex Position of this Subsystem in the Manager's plan
+     * @throws IllegalArgumentException If this Subsystem is already run by
+     *                                  another Manager.
+     */
+    final void attach(Manager manager, int planIndex) {
+        if (this.manager != null && this.manager != manager)
+            throw new IllegalArgumentException(
+                    "Subsystem is already run by another Manager: " + this);
+        this.manager = manager;
+        this.planIndex = planIndex;
+    }
+
+    /**
+     * Sets whether the inbox must be locked because the Manager runs phases in
+     * parallel. Only called by the Manager between loop cycles.
+     *
+     * @param shared Whether other threads may use the inbox at the same time
+     */
+    final void setInboxShared(boolean shared) {
+        inboxShared = shared;
     }
 
     /**
-     * Updates basic/preliminary data recursively for <code>this.subsystems</code>
-     * and this in that order.
+     * @return Position of this Subsystem in the Manager's execution plan
      */
-    final void updateData() {
-        updateDownData();
-        updateSelfData();
+    final int getPlanIndex() {
+        return planIndex;
     }
 
     /**
-     * Calls the <code>updateData()</code> method in all Subsystems in
-     * <code>this.subsystems</code>.
+     * @return The Manager running this Subsystem
+     * @throws IllegalStateException If no Manager has been constructed with
+     *                               this Subsystem yet.
      */
-    private void updateDownData() {
-        for (Subsystem subsystem : subsystems)
-            subsystem.updateData();
+    final Manager getManager() {
+        if (manager == null)
+            throw new IllegalStateException("Subsystem is not run by a Manager: " + this);
+        return manager;
+    }
+
+    /**
+     * @return The Subsystem which owns this one, or null if this is a
+     * top-level Subsystem
+     */
+    final Subsystem getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the Subsystems directly owned by this one (not their Subsystems).
+     *
+     * @return Set of Subsystems this Subsystem is in charge of, in the order
+     * they were added
+     */
+    Set<Subsystem> getDirectSubsystems() {
+        return subsystems;
     }
 
     /**
      * Request this Subsystem to respond/act on the specified Msg. This is a
      * multipurpose function for both requesting data during the data request
-     * phase and actions during the action request phase.
+     * phase and actions during the action request phase. This is safe to
+     * call from Subsystems running concurrently in the Manager's parallel mode,
+     * and only locks the inbox in that mode. Threads other than the loop
+     * thread and its pool should use <code>post</code> instead.
      *
      * @param message Requested data or action (depending on global phase)
      */
     public void request(Msg message) {
-        requestInbox.add(message);
+        message.checkLive();
+        if (!inboxShared) {
+            requestInbox.add(message);
+            return;
+        }
+        synchronized (requestInbox) {
+            requestInbox.add(message);
+        }
+    }
+
+    /**
+     * Gets a message from the Manager's pool for sending a request during this
+     * loop cycle. The message is taken back after cleanup, so unlike a message
+     * constructed directly, it must not be kept or read past the end of the
+     * cycle. Within the cycle, it is used exactly like any other message.
+     *
+     * @param identifier Identifier for the requested data or action
+     * @return A cleared message with the given identifier
+     */
+    final public Msg lease(Enum identifier) {
+        return getManager().messagePool.lease(identifier);
+    }
+
+    /**
+     * Gets the current time from the Manager's clock. This is the time at the
+     * start of the current loop cycle, so it is the same for every Subsystem
+     * and every call during the cycle.
+     *
+     * @return Time in nanoseconds from an arbitrary origin
+     */
+    final public long now() {
+        return getManager().clock.getNanos();
+    }
+
+    /**
+     * Passes a value read from outside the framework (such as a sensor reading
+     * in <code>updateSelfData</code>) through the Manager's record and replay.
+     * While inputs are being recorded, the value is saved and returned. While
+     * a recording is being replayed, the value recorded at this point is
+     * returned instead, and the argument is ignored. Otherwise, the value is
+     * just returned. Inputs must be read in the same order each cycle for a
+     * replay to line up.
+     *
+     * @param value Value which was just read
+     * @return The value to use
+     * @throws IllegalStateException If a replay asks for more inputs than were
+     *                               recorded for this cycle.
+     */
+    final public long input(long value) {
+        Manager manager = getManager();
+        if (manager.isReplaying()) {
+            if (inputCursor >= inputCount)
+                throw new IllegalStateException("Replay of " + this
+                        + " read more inputs than were recorded.");
+            return inputs[inputCursor++];
+        }
+        if (manager.getInputRecorder() != null) {
+            ensureInputCapacity(inputCount + 1);
+            inputs[inputCount++] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Passes a double read from outside the framework through the Manager's
+     * record and replay. See <code>input(long)</code>.
+     *
+     * @param value Value which was just read
+     * @return The value to use
+     */
+    final public double input(double value) {
+        return Double.longBitsToDouble(input(Double.doubleToRawLongBits(value)));
+    }
+
+    /**
+     * @return Whether the Manager is replaying recorded inputs, in which case
+     * hardware doesn't need to be read since <code>input</code> ignores what
+     * it is given
+     */
+    final public boolean isReplaying() {
+        return getManager().isReplaying();
+    }
+
+    /**
+     * Grows <code>inputs</code> to hold at least the given number of values.
+     */
+    final void ensureInputCapacity(int capacity) {
+        if (capacity > inputs.length)
+            inputs = Arrays.copyOf(inputs, Math.max(capacity, inputs.length * 2));
     }
 
     /**
@@ -165,22 +753,47 @@ public abstract class Subsystem {
 
     /**
      * Internal function which handles running through the inbox of requests and
-     * calling the <code>receiveDataRequest</code> function.
+     * calling the <code>receiveDataRequest</code> function. Requests for
+     * identifiers with caching turned on are only passed on the first time in
+     * each cycle, and later ones get a copy of that answer.
      */
     void receiveDataRequestMessages() {
-        for (Msg message : requestInbox)
-            receiveDataRequest(message);
-        requestInbox.clear();
+        Msg message;
+        while ((message = nextRequest()) != null) {
+            CachedResponse cached = responseCache == null ? null
+                    : responseCache.get(message.identifier);
+            if (cached == null) {
+                receiveDataRequest(message);
+                continue;
+            }
+            long cycle = manager.getCycleCount();
+            if (cached.cycle == cycle) {
+                message.copyPayloadFrom(cached.answer);
+                cachedResponses++;
+            } else {
+                receiveDataRequest(message);
+                cached.answer = message;
+                cached.cycle = cycle;
+            }
+        }
     }
 
     /**
-     * Extending-class-implemented function which should handle responding to a
-     * request for data in the specified message. This would likely be a switch
-     * on the <code>identifier</code> field of the <code>Msg</code>.
+     * Function which should handle responding to a request for data in the
+     * specified message. By default, this calls the handler bound to the
+     * message's identifier with <code>onDataRequest</code>, or counts the
+     * message as unhandled if there isn't one. Extending classes may instead
+     * override this with a switch on the <code>identifier</code> field of the
+     * <code>Msg</code>.
      *
      * @param message
      */
     void receiveDataRequest(Msg message) {
+        MsgHandler handler = dataHandlers.get(message.identifier);
+        if (handler == null)
+            unhandledDataRequests++;
+        else
+            handler.handle(message);
     }
 
     /**
@@ -190,16 +803,6 @@ public abstract class Subsystem {
     void updateLogic() {
     }
 
-    /**
-     * Internal function which first sends requests for actions from this
-     * Subsystem, then its dependents.
-     */
-    void sendActionRequests() {
-        sendActionRequest();
-        for (Subsystem subsystem : subsystems)
-            subsystem.sendActionRequest();
-    }
-
     /**
      * Extending-class-implemented function which should send requests to all
      * Subsystems from which action is needed. It is safe to send action
@@ -215,23 +818,68 @@ public abstract class Subsystem {
     }
 
     /**
-     * Internal function for running through inbox and calling the
+     * Internal function for running through inbox (starting with requests
+     * posted from other threads) and calling the
      * <code>receiveActionRequest</code> function for each one.
      */
     void receiveActionRequestMessages() {
-        for (Msg message : requestInbox)
+        Msg message;
+        if (crossThreadInbox != null) {
+            InputRecorder recorder = manager.getInputRecorder();
+            while ((message = crossThreadInbox.poll()) != null) {
+                if (recorder != null)
+                    recorder.recordPost(this, message);
+                receiveActionRequest(message);
+            }
+        }
+        while ((message = nextRequest()) != null)
             receiveActionRequest(message);
-        requestInbox.clear();
     }
 
     /**
-     * Extending-class-implemented function which responds to an action request.
-     * This would probably be best implemented as a switch on the
-     * <code>identifier</code> field of the <code>Msg</code>.
+     * Checks without locking whether anything is waiting in either inbox. This
+     * lets the Manager skip Subsystems with nothing to receive. Requests sent
+     * in earlier phases are always seen because the Manager finishes each
+     * phase before starting the next.
+     *
+     * @return Whether there may be requests to receive
+     */
+    final boolean hasRequests() {
+        return !requestInbox.isEmpty()
+                || (crossThreadInbox != null && !crossThreadInbox.isEmpty());
+    }
+
+    /**
+     * Takes one message out of the inbox. In parallel mode, messages are taken
+     * one at a time under the inbox lock so that other Subsystems receiving in
+     * parallel may still send requests here while this Subsystem works through
+     * its inbox.
+     *
+     * @return The removed message, or null if the inbox is empty
+     */
+    private Msg nextRequest() {
+        if (!inboxShared)
+            return requestInbox.poll();
+        synchronized (requestInbox) {
+            return requestInbox.poll();
+        }
+    }
+
+    /**
+     * Function which responds to an action request. By default, this calls the
+     * handler bound to the message's identifier with
+     * <code>onActionRequest</code>, or counts the message as unhandled if there
+     * isn't one. Extending classes may instead override this with a switch on
+     * the <code>identifier</code> field of the <code>Msg</code>.
      *
      * @param message Request for an action with parameters.
      */
     void receiveActionRequest(Msg message) {
+        MsgHandler handler = actionHandlers.get(message.identifier);
+        if (handler == null)
+            unhandledActionRequests++;
+        else
+            handler.handle(message);
     }
 
     /**
@@ -250,7 +898,8 @@ public abstract class Subsystem {
      * updates to anything except physical objects (although error trapping and
      * logging may be acceptable). The goal is to be able to not call this
      * function and have everything else respond as usual in the case of not
-     * wanting to physically run the robot.
+     * wanting to physically run the robot. Outputs staged on Actuators from
+     * <code>actuator</code> are written afterward, and only if they changed.
      */
     void publishControl() {
     }
@@ -263,4 +912,13 @@ public abstract class Subsystem {
      */
     void cleanup() {
     }
+
+    /**
+     * First answered request for one cached data identifier and the loop
+     * cycle it was answered in.
+     */
+    private static final class CachedResponse {
+        Msg answer;
+        long cycle = -1;
+    }
 }
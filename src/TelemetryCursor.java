@@ -0,0 +1,91 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Position in a telemetry recording which streams forward one record at a
+ * time and reads only a chosen subset of the columns, straight out of the
+ * mapped segments. Get one from a TelemetryReader.
+ */
+public final class TelemetryCursor {
+    private final MappedSegmentReader[] segments;
+    private final int recordSize;
+    /**
+     * Byte offset within a record of each chosen column.
+     */
+    private final int[] offsets;
+    private int segment;
+    private ByteBuffer view;
+    /**
+     * Offset of the next record to move to.
+     */
+    private int next;
+    /**
+     * Offset of the current record, or -1 before the first <code>next</code>.
+     */
+    private int current = -1;
+
+    TelemetryCursor(MappedSegmentReader[] segments, int recordSize, int[] offsets,
+                    int segment, int offset) {
+        this.segments = segments;
+        this.recordSize = recordSize;
+        this.offsets = offsets;
+        this.segment = segment;
+        this.view = segments[segment].view();
+        this.next = offset;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return Whether there was another record
+     */
+    public boolean next() {
+        while (next + recordSize > segments[segment].getEnd()) {
+            if (segment + 1 >= segments.length)
+                return false;
+            segment++;
+            view = segments[segment].view();
+            next = segments[segment].getDataStart();
+        }
+        current = next;
+        next += recordSize;
+        return true;
+    }
+
+    /**
+     * @param column Position of the column in the list the cursor was opened
+     *               with
+     * @return The column's value in the current record as a long
+     */
+    public long getLong(int column) {
+        return view.getLong(record() + offsets[column]);
+    }
+
+    /**
+     * @param column Position of the column in the list the cursor was opened
+     *               with
+     * @return The column's value in the current record as a double
+     */
+    public double getDouble(int column) {
+        return view.getDouble(record() + offsets[column]);
+    }
+
+    /**
+     * @return Tick of the current record
+     */
+    public long getTick() {
+        return view.getLong(record());
+    }
+
+    /**
+     * @return Clock time of the current record
+     */
+    public long getTime() {
+        return view.getLong(record() + 8);
+    }
+
+    private int record() {
+        if (current < 0)
+            throw new IllegalStateException("Cursor has not been moved to a record.");
+        return current;
+    }
+}
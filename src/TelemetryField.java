@@ -0,0 +1,24 @@
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * One named column of telemetry and where its value comes from. Exactly one of
+ * the sources is set.
+ */
+final class TelemetryField {
+    final String name;
+    final LongSupplier longSource;
+    final DoubleSupplier doubleSource;
+
+    TelemetryField(String name, LongSupplier source) {
+        this.name = name;
+        this.longSource = source;
+        this.doubleSource = null;
+    }
+
+    TelemetryField(String name, DoubleSupplier source) {
+        this.name = name;
+        this.longSource = null;
+        this.doubleSource = source;
+    }
+}
@@ -0,0 +1,211 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads telemetry written by <code>Manager.startTelemetry</code>. Segments are
+ * memory-mapped rather than read in, and the sparse index written alongside
+ * them is loaded up front, so seeking to any tick or time is a binary search
+ * over the index followed by a binary search over the fixed-size records it
+ * points into. Cursors read only the columns they were opened with.
+ *
+ * <p>The index is keyed on the built-in <code>tick</code> and
+ * <code>time</code> columns. <code>time</code> is the Manager's clock, which
+ * SimpleTimer and Timer measure from, so a timer reading converts to a seek
+ * time by adding the clock time the timer started at.</p>
+ */
+public final class TelemetryReader {
+    private final MappedSegmentReader[] segments;
+    private final String[] names;
+    private final boolean[] doubles;
+    private final int recordSize;
+    /**
+     * Index entries: tick, time, position in <code>segments</code>, and
+     * record offset.
+     */
+    private final long[] indexTicks, indexTimes;
+    private final int[] indexSegments, indexOffsets;
+
+    /**
+     * Maps every segment of a recording and loads its index.
+     *
+     * @param directory Directory the telemetry was written into
+     * @throws IOException If there is no recording or it can't be read.
+     */
+    public TelemetryReader(File directory) throws IOException {
+        List<File> files = MappedSegmentReader.segmentFiles(directory, TelemetryRecorder.PREFIX);
+        if (files.isEmpty())
+            throw new IOException("No telemetry in " + directory);
+        segments = new MappedSegmentReader[files.size()];
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = new MappedSegmentReader(files.get(i));
+
+        ByteBuffer header = segments[0].header();
+        if (header.getInt() != TelemetryRecorder.MAGIC)
+            throw new IOException(files.get(0) + " is not a telemetry segment.");
+        names = new String[header.getInt()];
+        doubles = new boolean[names.length];
+        recordSize = header.getInt();
+        for (int i = 0; i < names.length; i++) {
+            doubles[i] = header.get() == TelemetryRecorder.DOUBLE;
+            byte[] name = new byte[header.getShort()];
+            header.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        List<long[]> entries = new ArrayList<>();
+        for (File file : MappedSegmentReader.segmentFiles(directory, TelemetryRecorder.INDEX_PREFIX)) {
+            MappedSegmentReader index = new MappedSegmentReader(file);
+            if (index.header().getInt() != TelemetryRecorder.INDEX_MAGIC)
+                throw new IOException(file + " is not a telemetry index segment.");
+            ByteBuffer view = index.view();
+            view.position(index.getDataStart());
+            for (long i = index.getRecordCount(); i > 0; i--) {
+                long[] entry = {view.getLong(), view.getLong(), view.getInt(), view.getInt()};
+                // entries for segments which weren't kept can't be used
+                if (entry[2] < segments.length)
+                    entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            // without an index, fall back on the first record of every segment
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].getRecordCount() > 0) {
+                    int offset = segments[i].getDataStart();
+                    ByteBuffer view = segments[i].view();
+                    entries.add(new long[]{view.getLong(offset), view.getLong(offset + 8), i, offset});
+                }
+            }
+        }
+        indexTicks = new long[entries.size()];
+        indexTimes = new long[entries.size()];
+        indexSegments = new int[entries.size()];
+        indexOffsets = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            long[] entry = entries.get(i);
+            indexTicks[i] = entry[0];
+            indexTimes[i] = entry[1];
+            indexSegments[i] = (int) entry[2];
+            indexOffsets[i] = (int) entry[3];
+        }
+    }
+
+    /**
+     * @return Number of columns in each record
+     */
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    /**
+     * @param field Column number
+     * @return Name of the column
+     */
+    public String getFieldName(int field) {
+        return names[field];
+    }
+
+    /**
+     * @param field Column number
+     * @return Whether the column holds doubles rather than longs
+     */
+    public boolean isDouble(int field) {
+        return doubles[field];
+    }
+
+    /**
+     * @param name Name of a column
+     * @return Column number
+     * @throws IllegalArgumentException If there is no such column.
+     */
+    public int getFieldIndex(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        throw new IllegalArgumentException("No telemetry field named " + name);
+    }
+
+    /**
+     * @return Number of records in the whole recording
+     */
+    public long getRecordCount() {
+        long count = 0;
+        for (MappedSegmentReader segment : segments)
+            count += segment.getRecordCount();
+        return count;
+    }
+
+    /**
+     * Opens a cursor at the first record.
+     *
+     * @param fields Names of the columns to read
+     * @return Cursor whose first <code>next()</code> moves to the first record
+     */
+    public TelemetryCursor cursor(String... fields) {
+        return seekTick(Long.MIN_VALUE, fields);
+    }
+
+    /**
+     * Opens a cursor at the first record at or after a tick.
+     *
+     * @param tick   Tick to seek to
+     * @param fields Names of the columns to read
+     * @return Cursor whose first <code>next()</code> moves to the record
+     */
+    public TelemetryCursor seekTick(long tick, String... fields) {
+        return seek(indexTicks, 0, tick, fields);
+    }
+
+    /**
+     * Opens a cursor at the first record at or after a clock time.
+     *
+     * @param nanos  Time to seek to, on the Manager's clock
+     * @param fields Names of the columns to read
+     * @return Cursor whose first <code>next()</code> moves to the record
+     */
+    public TelemetryCursor seekTime(long nanos, String... fields) {
+        return seek(indexTimes, 8, nanos, fields);
+    }
+
+    /**
+     * Finds the last index entry before the key, then binary searches the
+     * records from there up to the next entry or the end of the segment.
+     */
+    private TelemetryCursor seek(long[] keys, int keyOffset, long key, String[] fields) {
+        int[] offsets = new int[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            offsets[i] = getFieldIndex(fields[i]) * 8;
+        // last entry before the key, so the first record at or after the key
+        // comes after it and no later than the entry following it
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        int entry = low - 1;
+        if (entry < 0)
+            return new TelemetryCursor(segments, recordSize, offsets, 0, segments[0].getDataStart());
+
+        int segment = indexSegments[entry];
+        ByteBuffer view = segments[segment].view();
+        int start = indexOffsets[entry];
+        int first = 0;
+        int last = (int) ((segments[segment].getEnd() - start) / recordSize);
+        if (entry + 1 < keys.length && indexSegments[entry + 1] == segment)
+            last = (indexOffsets[entry + 1] - start) / recordSize;
+        while (first < last) {
+            int middle = (first + last) >>> 1;
+            if (view.getLong(start + middle * recordSize + keyOffset) < key)
+                first = middle + 1;
+            else
+                last = middle;
+        }
+        return new TelemetryCursor(segments, recordSize, offsets, segment, start + first * recordSize);
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes one fixed-layout binary record per loop cycle holding the value of
+ * every telemetry field, using a MappedSegmentWriter so that the loop thread
+ * never waits on the disk. Every field takes 8 bytes: a long, or the raw bits
+ * of a double. Fields are written in the order they are listed in the header.
+ *
+ * <p>The header in each segment is the int <code>MAGIC</code>, the int number
+ * of fields, the int record size, and then for each field its type
+ * (<code>LONG</code> or <code>DOUBLE</code>) as a byte followed by its name as
+ * a short length and that many UTF-8 bytes. Like the rest of the segment,
+ * everything is little-endian.</p>
+ *
+ * <p>A sparse index is written alongside the records into segments named
+ * <code>INDEX_PREFIX</code>, with the header int <code>INDEX_MAGIC</code>.
+ * It gets an entry for every <code>INDEX_INTERVAL</code>th record and for the
+ * first record of every segment, each holding the record's long tick, long
+ * time, int segment number, and int offset. The first two fields must
+ * therefore be the tick and the time, which both only ever increase.</p>
+ */
+final class TelemetryRecorder {
+    static final int MAGIC = 0x46544c4d;
+    static final byte LONG = 'L';
+    static final byte DOUBLE = 'D';
+    static final String PREFIX = "telemetry";
+    static final String INDEX_PREFIX = "telemetry-index";
+    static final int INDEX_MAGIC = 0x46544958;
+    static final int INDEX_INTERVAL = 256;
+    static final int INDEX_ENTRY_BYTES = 24;
+
+    private final TelemetryField[] fields;
+    private final LongSupplier[] longSources;
+    private final DoubleSupplier[] doubleSources;
+    private final int recordSize;
+    private final MappedSegmentWriter writer;
+    private final MappedSegmentWriter index;
+
+    /**
+     * @param directory    Directory to write segments into
+     * @param segmentBytes Size of each segment file
+     * @param fields       Fields to record each cycle, in column order
+     * @throws IOException If the first segment can't be created.
+     */
+    TelemetryRecorder(File directory, int segmentBytes, List<TelemetryField> fields)
+            throws IOException {
+        this.fields = fields.toArray(new TelemetryField[0]);
+        longSources = new LongSupplier[this.fields.length];
+        doubleSources = new DoubleSupplier[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            longSources[i] = this.fields[i].longSource;
+            doubleSources[i] = this.fields[i].doubleSource;
+        }
+        recordSize = this.fields.length * 8;
+        writer = new MappedSegmentWriter(directory, PREFIX, segmentBytes, header());
+        ByteBuffer indexHeader = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        indexHeader.putInt(INDEX_MAGIC);
+        index = new MappedSegmentWriter(directory, INDEX_PREFIX,
+                Math.max(4096, segmentBytes / 64), indexHeader.array());
+    }
+
+    private byte[] header() {
+        byte[][] names = new byte[fields.length][];
+        int length = 12;
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields[i].name.getBytes(StandardCharsets.UTF_8);
+            length += 3 + names[i].length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(fields.length).putInt(recordSize);
+        for (int i = 0; i < fields.length; i++)
+            header.put(fields[i].longSource != null ? LONG : DOUBLE)
+                    .putShort((short) names[i].length).put(names[i]);
+        return header.array();
+    }
+
+    /**
+     * Reads every field and appends them as one record, or drops the record
+     * if the writer isn't ready for it. Every so often, the record is also
+     * added to the index.
+     */
+    void record() {
+        ByteBuffer buffer = writer.append(recordSize);
+        if (buffer == null)
+            return;
+        int start = buffer.position();
+        for (int i = 0; i < longSources.length; i++) {
+            if (longSources[i] != null)
+                buffer.putLong(longSources[i].getAsLong());
+            else
+                buffer.putDouble(doubleSources[i].getAsDouble());
+        }
+        if (writer.getRecordCount() % INDEX_INTERVAL == 0 || start == writer.getDataStart()) {
+            ByteBuffer entry = index.append(INDEX_ENTRY_BYTES);
+            if (entry != null) {
+                entry.putLong(buffer.getLong(start)).putLong(buffer.getLong(start + 8))
+                        .putInt(writer.getSegment()).putInt(start);
+                index.commit();
+            }
+        }
+        writer.commit();
+    }
+
+    /**
+     * @return Number of records written
+     */
+    long getRecordCount() {
+        return writer.getRecordCount();
+    }
+
+    /**
+     * @return Number of records dropped
+     */
+    long getDroppedRecords() {
+        return writer.getDroppedRecords();
+    }
+
+    /**
+     * Flushes everything written to disk and stops the background thread.
+     *
+     * @throws IOException If a segment couldn't be written.
+     */
+    void close() throws IOException {
+        writer.close();
+        index.close();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Manager-owned clock which reads the time from its TimeSource once at the
+ * start of each loop cycle. Every Subsystem sees the same time for the whole cycle, so time
+ * differences computed by different Subsystems in one cycle agree with each
+ * other, and the clock is read once per cycle instead of once per use.
+ */
+public final class TickClock {
+    /**
+     * Where the time is read from.
+     */
+    private TimeSource source = TimeSource.SYSTEM;
+    /**
+     * Time of the start of the current cycle, in nanoseconds from an arbitrary
+     * origin (only differences are meaningful).
+     */
+    private long nanos = source.nanoTime();
+
+    /**
+     * Reads the time for a new loop cycle.
+     */
+    void tick() {
+        nanos = source.nanoTime();
+    }
+
+    /**
+     * Switches where the time is read from and reads it right away.
+     *
+     * @param source New time source
+     */
+    void setSource(TimeSource source) {
+        this.source = source;
+        nanos = source.nanoTime();
+    }
+
+    /**
+     * @return Where the time is read from
+     */
+    TimeSource getSource() {
+        return source;
+    }
+
+    /**
+     * @return Time at the start of the current loop cycle in nanoseconds, or
+     * at the Manager's construction before the first cycle
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Where the Manager's clock gets the time from. The real robot uses
+ * <code>SYSTEM</code>, while simulations can plug in a SimulatedTimeSource so
+ * they run deterministically and as fast as the CPU allows.
+ */
+public interface TimeSource {
+    /**
+     * Wall-clock time from <code>System.nanoTime()</code>.
+     */
+    TimeSource SYSTEM = System::nanoTime;
+
+    /**
+     * Reads the time. The Manager's clock calls this once per loop cycle.
+     *
+     * @return Time in nanoseconds from an arbitrary origin
+     */
+    long nanoTime();
+}
@@ -6,12 +6,22 @@ public class Timer extends Subsystem {
     State state;
     SimpleTimer totalTimer;
     SimpleTimer pauseTimer;
+    private final LongChannel cumulativeTimeChannel = longChannel(Data.CUMULATIVE_TIME);
 
     public Timer(Subsystem owner) {
         super(owner);
         addSubsystem(totalTimer = new SimpleTimer(this));
         addSubsystem(pauseTimer = new SimpleTimer(this));
         state = State.RUNNING;
+        onActionRequest(Action.PRINT, message -> System.out.println(cumulativeTime));
+        onActionRequest(Action.PAUSE, message -> {
+            state = State.PAUSED;
+            lastPauseTime = pauseTime;
+            pauseTimer.request(lease(SimpleTimer.Action.RESET));
+        });
+        onActionRequest(Action.START, message -> state = State.RUNNING);
+        recordLong("cumulativeTime", () -> cumulativeTime);
+        shareLong("cumulativeTime", () -> cumulativeTime);
     }
 
     @Override
@@ -23,24 +33,10 @@ public class Timer extends Subsystem {
             case PAUSED:
                 pauseTime = lastPauseTime + pauseTimer.getTime();
         }
+        cumulativeTimeChannel.publish(cumulativeTime);
     }
 
-    @Override
-    void receiveActionRequest(Msg message) {
-        switch ((Action) message.identifier) {
-            case PRINT:
-                System.out.println(cumulativeTime);
-                break;
-            case PAUSE:
-                state = State.PAUSED;
-                lastPauseTime = pauseTimer.getTime();
-                pauseTimer.request(new Msg(SimpleTimer.Action.RESET));
-            case START:
-                state = State.RUNNING;
-
-        }
-    }
-
+    public enum Data {CUMULATIVE_TIME}
     public enum Action {PRINT, PAUSE, START, RESET}
     private enum State {RUNNING, PAUSED}
 }
@@ -0,0 +1,214 @@
+/**
+ * Hierarchical timing wheel holding requests scheduled for later delivery.
+ * Time is split into ticks of a fixed resolution. The first level has one slot
+ * for each of the next 64 ticks, and each further level has slots 64 times as
+ * wide. Scheduling and cancelling are constant time, and moving time forward
+ * only looks at the slots for the ticks passed, so thousands of pending
+ * requests cost nothing until they are due. When a higher-level slot comes
+ * up, its requests are spread back down into the finer levels.
+ */
+final class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    /**
+     * Furthest number of ticks ahead the wheel can hold directly. Requests
+     * further out sit in the last slot of the top level and are placed again
+     * when it comes up.
+     */
+    private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+
+    private final long resolutionNanos;
+    /**
+     * Heads of the request lists, by level and then slot.
+     */
+    private final ScheduledRequest[][] slots = new ScheduledRequest[LEVELS][SLOTS];
+    /**
+     * Last tick which has been processed.
+     */
+    private long currentTick;
+    /**
+     * Whether <code>currentTick</code> has been set from the clock yet.
+     */
+    private boolean started = false;
+    /**
+     * Number of requests in the wheel.
+     */
+    private int pending = 0;
+
+    /**
+     * @param resolutionNanos Length of one wheel tick in nanoseconds
+     */
+    TimingWheel(long resolutionNanos) {
+        this.resolutionNanos = resolutionNanos;
+    }
+
+    /**
+     * Adds a request to be delivered after a delay.
+     *
+     * @param target      Subsystem to deliver the message to
+     * @param message     Message to deliver, which must not be a leased one
+     * @param nowNanos    Current clock time
+     * @param delayNanos  Time to wait before the first delivery
+     * @param periodNanos Time between later deliveries, or 0 for one delivery
+     * @return Handle for the scheduled request
+     */
+    synchronized ScheduledRequest schedule(Subsystem target, Msg message, long nowNanos,
+                                           long delayNanos, long periodNanos) {
+        start(nowNanos);
+        // round up so that nothing is ever delivered early
+        long deadline = -Math.floorDiv(-(nowNanos + delayNanos), resolutionNanos);
+        long period = periodNanos <= 0 ? 0
+                : Math.max(1, -Math.floorDiv(-periodNanos, resolutionNanos));
+        ScheduledRequest request = new ScheduledRequest(this, target, message, deadline, period);
+        insert(request);
+        return request;
+    }
+
+    /**
+     * Moves time forward, delivering every request due by then into its
+     * target's inbox and rescheduling repeating ones. A repeating request is
+     * delivered at most once per call: periods it missed (because its period
+     * is shorter than the time passed) are skipped, and it is rescheduled for
+     * the first of its period boundaries after the new time.
+     *
+     * @param nowNanos Current clock time
+     */
+    synchronized void advance(long nowNanos) {
+        start(nowNanos);
+        long target = Math.floorDiv(nowNanos, resolutionNanos);
+        if (pending == 0) {
+            if (target > currentTick)
+                currentTick = target;
+            return;
+        }
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            // pull coarser slots down first so their requests can still land
+            // in the finer slots for this tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                    cascade(level, (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+            }
+            currentTick = tick;
+            fire((int) tick & (SLOTS - 1), target);
+            if (pending == 0) {
+                currentTick = target;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes a request out of its slot if it's in one.
+     */
+    void remove(ScheduledRequest request) {
+        if (!request.scheduled)
+            return;
+        if (request.previous != null)
+            request.previous.next = request.next;
+        else
+            slots[request.level][request.slot] = request.next;
+        if (request.next != null)
+            request.next.previous = request.previous;
+        request.previous = null;
+        request.next = null;
+        request.scheduled = false;
+        pending--;
+    }
+
+    /**
+     * Forgets the tick the wheel was anchored to, so that it anchors again to
+     * the next time it is given. This is for switching to a clock whose time
+     * doesn't continue from the old one's.
+     *
+     * @throws IllegalStateException If any request is scheduled, since its
+     *                               deadline is in the old clock's time
+     */
+    synchronized void restart() {
+        if (pending > 0)
+            throw new IllegalStateException(
+                    "Can't restart the timing wheel while requests are scheduled.");
+        started = false;
+    }
+
+    private void start(long nowNanos) {
+        if (!started) {
+            currentTick = Math.floorDiv(nowNanos, resolutionNanos);
+            started = true;
+        }
+    }
+
+    /**
+     * Puts a request into the finest slot which can hold its deadline, counted
+     * from the next tick to be processed. Overdue requests go in the next
+     * tick's slot.
+     */
+    private void insert(ScheduledRequest request) {
+        long next = currentTick + 1;
+        long placement = request.deadlineTick;
+        if (placement - next >= RANGE)
+            placement = next + RANGE - 1;
+        else if (placement < next)
+            placement = next;
+        int level = 0;
+        while (level < LEVELS - 1 && placement - next >= 1L << (SLOT_BITS * (level + 1)))
+            level++;
+        int slot = (int) (placement >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        request.level = level;
+        request.slot = slot;
+        ScheduledRequest head = slots[level][slot];
+        request.previous = null;
+        request.next = head;
+        if (head != null)
+            head.previous = request;
+        slots[level][slot] = request;
+        request.scheduled = true;
+        pending++;
+    }
+
+    /**
+     * Moves every request in a coarse slot down to finer ones. Called before
+     * <code>currentTick</code> moves onto the tick the slot starts at.
+     */
+    private void cascade(int level, int slot) {
+        ScheduledRequest request = slots[level][slot];
+        slots[level][slot] = null;
+        while (request != null) {
+            ScheduledRequest next = request.next;
+            request.scheduled = false;
+            pending--;
+            insert(request);
+            request = next;
+        }
+    }
+
+    /**
+     * Delivers every request in a first-level slot which is due.
+     *
+     * @param slot       Slot of <code>currentTick</code>
+     * @param targetTick Tick the current <code>advance</code> is moving to,
+     *                   which repeating requests are rescheduled past
+     */
+    private void fire(int slot, long targetTick) {
+        ScheduledRequest request = slots[0][slot];
+        slots[0][slot] = null;
+        while (request != null) {
+            ScheduledRequest next = request.next;
+            request.scheduled = false;
+            pending--;
+            if (request.deadlineTick <= currentTick) {
+                request.target.request(request.message);
+                if (request.periodTicks > 0) {
+                    long missed = targetTick < request.deadlineTick ? 0
+                            : (targetTick - request.deadlineTick) / request.periodTicks;
+                    request.deadlineTick += (missed + 1) * request.periodTicks;
+                    insert(request);
+                }
+            } else {
+                insert(request);
+            }
+            request = next;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Runs every test in this directory and stops at the first failure. From the
+ * project directory:
+ * <pre>
+ * javac -d out src/*.java test/*.java
+ * java -cp out AllTests
+ * </pre>
+ */
+public class AllTests {
+    public static void main(String[] args) throws Exception {
+        TimingWheelTest.main(args);
+        SeqlockSlotTest.main(args);
+        TelemetrySeekTest.main(args);
+        InputReplayTest.main(args);
+        System.out.println("All tests passed.");
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Helpers shared by the tests. There is no test framework on the class path,
+ * so each test is a class with a <code>main</code> method which throws an
+ * AssertionError on the first failed check.
+ */
+final class Checks {
+    private Checks() {
+    }
+
+    /**
+     * @param condition Condition which must hold
+     * @param message   Description of the failure if it doesn't
+     * @throws AssertionError If the condition doesn't hold
+     */
+    static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * @param expected Expected value
+     * @param actual   Actual value
+     * @param what     Name of the value for the failure message
+     * @throws AssertionError If the values differ
+     */
+    static void checkEquals(long expected, long actual, String what) {
+        if (expected != actual)
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * @param prefix Start of the directory's name
+     * @return New empty directory under the system's temporary directory
+     */
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /**
+     * Deletes a directory created by <code>createTempDirectory</code> along
+     * with the files in it.
+     */
+    static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a loop fed by everything the framework records as input (real time,
+ * values passed through <code>Subsystem.input</code>, an AsyncSensor sampled
+ * on its own thread, and requests posted from another thread), then replays
+ * the recording into an identically built tree and checks that it goes
+ * through exactly the same states, cycle for cycle.
+ */
+public class InputReplayTest {
+    private static final int CYCLES = 600;
+
+    /**
+     * Subsystem which folds everything it sees each cycle into a running hash.
+     */
+    private static final class Logic extends Subsystem {
+        final SimulatedSlowSensor sensor;
+        final Timer timer;
+        final List<Long> trace = new ArrayList<>();
+        private double accumulated;
+        private long hash;
+
+        Logic() {
+            super(null);
+            addSubsystem(sensor = new SimulatedSlowSensor(this, 3, 7));
+            addSubsystem(timer = new Timer(this));
+            timer.enableCrossThreadInbox(64);
+        }
+
+        @Override
+        void updateSelfData() {
+            accumulated += sensor.getValue() * input(Math.random());
+        }
+
+        @Override
+        void cleanup() {
+            hash = hash * 31 + Double.doubleToLongBits(accumulated)
+                    + timer.cumulativeTime * 17 + now();
+            trace.add(hash);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File directory = Checks.createTempDirectory("inputs");
+        try {
+            Logic recorded = new Logic();
+            int posts = record(recorded, directory);
+            Checks.check(posts > 0, "No requests were posted during the recording.");
+
+            Logic replayed = new Logic();
+            long cycles = new Manager(replayed).replay(directory);
+            Checks.checkEquals(CYCLES, cycles, "Replayed cycles");
+            Checks.checkEquals(recorded.trace.size(), replayed.trace.size(), "Trace length");
+            for (int i = 0; i < recorded.trace.size(); i++)
+                Checks.check(recorded.trace.get(i).equals(replayed.trace.get(i)),
+                        "Replay diverged on cycle " + i + ".");
+            Checks.checkEquals(recorded.timer.cumulativeTime, replayed.timer.cumulativeTime,
+                    "Timer state after replay");
+        } finally {
+            Checks.delete(directory);
+        }
+        System.out.println("InputReplayTest passed.");
+    }
+
+    /**
+     * @return Number of requests posted while recording
+     */
+    private static int record(Logic logic, File directory) throws IOException, InterruptedException {
+        Manager manager = new Manager(logic);
+        manager.init();
+        manager.startRecordingInputs(directory, 256 * 1024);
+        int[] posts = {0};
+        Thread poster = new Thread(() -> {
+            Random random = new Random();
+            while (!Thread.currentThread().isInterrupted()) {
+                logic.timer.post(new Msg(random.nextBoolean() ? Timer.Action.PAUSE : Timer.Action.START));
+                posts[0]++;
+                try {
+                    Thread.sleep(7);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        poster.start();
+        try {
+            for (int i = 0; i < CYCLES; i++) {
+                manager.loop();
+                Thread.sleep(1);
+            }
+            Checks.checkEquals(0, manager.getDroppedInputRecords(), "Dropped input records");
+        } finally {
+            poster.interrupt();
+            poster.join();
+            manager.stopRecordingInputs();
+            logic.sensor.stopSampling();
+        }
+        return posts[0];
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Checks that a reader racing a writer on a SeqlockSlot only ever sees whole
+ * samples, and never an older sample after a newer one.
+ */
+public class SeqlockSlotTest {
+    private static final int WIDTH = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        SeqlockSlot slot = new SeqlockSlot(WIDTH);
+        slot.write(new double[WIDTH], 0);
+        Thread writer = new Thread(() -> {
+            // every value in a sample equals its timestamp
+            double[] values = new double[WIDTH];
+            for (long sample = 1; !Thread.currentThread().isInterrupted(); sample++) {
+                for (int i = 0; i < WIDTH; i++)
+                    values[i] = sample;
+                slot.write(values, sample);
+            }
+        });
+        writer.start();
+        double[] values = new double[WIDTH];
+        long previous = 0;
+        long reads = 0;
+        long end = System.nanoTime() + 500_000_000;
+        try {
+            while (System.nanoTime() - end < 0) {
+                long timestamp = slot.read(values);
+                for (int i = 0; i < WIDTH; i++)
+                    Checks.checkEquals(timestamp, (long) values[i], "Value " + i + " of a sample");
+                Checks.check(timestamp >= previous,
+                        "Read sample " + timestamp + " after sample " + previous + ".");
+                previous = timestamp;
+                reads++;
+            }
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+        Checks.check(previous > 0, "Never saw a sample from the writer.");
+        System.out.println("SeqlockSlotTest passed (" + reads + " reads).");
+    }
+}
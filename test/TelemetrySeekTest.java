@@ -0,0 +1,86 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records telemetry into small segments so the recording spans many of them,
+ * then checks that seeking to every tick and to every record's time lands on
+ * the right record, including around segment boundaries, and that cursors
+ * stream on across those boundaries.
+ */
+public class TelemetrySeekTest {
+    private static final int CYCLES = 20000;
+    private static final long STEP_NANOS = 5_000_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File directory = Checks.createTempDirectory("telemetry");
+        try {
+            record(directory);
+            check(directory);
+        } finally {
+            Checks.delete(directory);
+        }
+        System.out.println("TelemetrySeekTest passed.");
+    }
+
+    private static void record(File directory) throws IOException, InterruptedException {
+        Manager manager = new Manager(new Timer(null));
+        manager.setTimeSource(new SimulatedTimeSource(STEP_NANOS));
+        manager.startTelemetry(directory, 64 * 1024);
+        for (int i = 0; i < CYCLES; i++) {
+            manager.loop();
+            // give the segment thread a chance on machines with few cores
+            if (i % 200 == 0)
+                Thread.sleep(1);
+        }
+        manager.stopTelemetry();
+    }
+
+    private static void check(File directory) throws IOException {
+        int segments = MappedSegmentReader.segmentFiles(directory, TelemetryRecorder.PREFIX).size();
+        Checks.check(segments > 2, "Recording only has " + segments + " segments.");
+        TelemetryReader reader = new TelemetryReader(directory);
+
+        // records dropped while a segment wasn't ready leave gaps, so the
+        // expected answers come from streaming the whole recording
+        int count = (int) reader.getRecordCount();
+        long[] ticks = new long[count];
+        long[] times = new long[count];
+        TelemetryCursor all = reader.cursor("tick");
+        for (int i = 0; i < count; i++) {
+            Checks.check(all.next(), "Recording ended after " + i + " of " + count + " records.");
+            ticks[i] = all.getTick();
+            times[i] = all.getTime();
+            Checks.checkEquals(ticks[i], all.getLong(0), "Tick column of record " + i);
+            Checks.check(i == 0 || ticks[i] > ticks[i - 1], "Ticks aren't increasing at " + i);
+        }
+        Checks.check(!all.next(), "Recording has more records than it counts.");
+        Checks.check(count > CYCLES * 9L / 10, "Only " + count + " of " + CYCLES + " cycles were kept.");
+
+        int expected = 0;
+        for (long tick = ticks[0] - 2; tick <= ticks[count - 1] + 2; tick++) {
+            while (expected < count && ticks[expected] < tick)
+                expected++;
+            checkAt(reader.seekTick(tick, "tick"), ticks, times, expected, "tick " + tick);
+        }
+        for (int i = 0; i < count; i++) {
+            checkAt(reader.seekTime(times[i], "time"), ticks, times, i, "time " + times[i]);
+            checkAt(reader.seekTime(times[i] - 1, "time"), ticks, times, i, "time " + (times[i] - 1));
+        }
+        checkAt(reader.seekTime(times[count - 1] + 1, "time"), ticks, times, count, "the end");
+    }
+
+    /**
+     * Checks that a cursor's first two records are the expected one and the
+     * one after it.
+     */
+    private static void checkAt(TelemetryCursor cursor, long[] ticks, long[] times,
+                                int expected, String seek) {
+        for (int i = expected; i < Math.min(expected + 2, ticks.length); i++) {
+            Checks.check(cursor.next(), "Seeking to " + seek + " found no record " + i + ".");
+            Checks.checkEquals(ticks[i], cursor.getTick(), "Tick after seeking to " + seek);
+            Checks.checkEquals(times[i], cursor.getTime(), "Time after seeking to " + seek);
+        }
+        if (expected + 2 > ticks.length)
+            Checks.check(!cursor.next(), "Seeking to " + seek + " found a record past the end.");
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the timing wheel delivers requests on the exact tick they are
+ * due, including ones which start out in each of the four levels or beyond
+ * the wheel's range and have to cascade down, and that cancelling and
+ * repeating requests behave as documented.
+ */
+public class TimingWheelTest {
+    private static final long RESOLUTION = 1_000_000;
+    /**
+     * Tick the wheel is anchored to, which deliberately isn't on a slot
+     * boundary of any level.
+     */
+    private static final long START = 777;
+
+    /**
+     * Subsystem which just collects what the wheel delivers to it.
+     */
+    private static final class Target extends Subsystem {
+        final List<Msg> delivered = new ArrayList<>();
+
+        Target() {
+            super(null);
+        }
+
+        @Override
+        public void request(Msg message) {
+            delivered.add(message);
+        }
+    }
+
+    public static void main(String[] args) {
+        cascade();
+        cancel();
+        repeat();
+        System.out.println("TimingWheelTest passed.");
+    }
+
+    private static void cascade() {
+        // around each level's width, the wheel's full range, and past it
+        long[] delays = {1, 2, 63, 64, 65, 100, 4095, 4096, 4097, 5000,
+                262143, 262144, 262145, 300000,
+                16777215, 16777216, 16777217, 20000000};
+        TimingWheel wheel = new TimingWheel(RESOLUTION);
+        Target target = new Target();
+        Msg[] messages = new Msg[delays.length];
+        ScheduledRequest[] requests = new ScheduledRequest[delays.length];
+        for (int i = 0; i < delays.length; i++) {
+            messages[i] = new Msg(Timer.Action.PRINT);
+            requests[i] = wheel.schedule(target, messages[i], START * RESOLUTION,
+                    delays[i] * RESOLUTION, 0);
+        }
+        boolean[] delivered = new boolean[delays.length];
+        long last = START + delays[delays.length - 1] + 1;
+        for (long tick = START + 1; tick <= last; tick++) {
+            wheel.advance(tick * RESOLUTION);
+            for (Msg message : target.delivered) {
+                int i = indexOf(messages, message);
+                Checks.check(!delivered[i], "Request " + delays[i] + " was delivered twice.");
+                Checks.checkEquals(START + delays[i], tick, "Delivery tick of request " + delays[i]);
+                Checks.check(!requests[i].isPending(), "Delivered request is still pending.");
+                delivered[i] = true;
+            }
+            target.delivered.clear();
+        }
+        for (int i = 0; i < delays.length; i++)
+            Checks.check(delivered[i], "Request " + delays[i] + " was never delivered.");
+    }
+
+    private static void cancel() {
+        TimingWheel wheel = new TimingWheel(RESOLUTION);
+        Target target = new Target();
+        long now = START * RESOLUTION;
+        Msg kept = new Msg(Timer.Action.PRINT);
+        Msg cascaded = new Msg(Timer.Action.PRINT);
+        Msg early = new Msg(Timer.Action.PRINT);
+        ScheduledRequest keptRequest = wheel.schedule(target, kept, now, 300000 * RESOLUTION, 0);
+        ScheduledRequest cascadedRequest = wheel.schedule(target, cascaded, now, 300000 * RESOLUTION, 0);
+        ScheduledRequest earlyRequest = wheel.schedule(target, early, now, 70 * RESOLUTION, 0);
+        earlyRequest.cancel();
+        Checks.check(earlyRequest.isCancelled() && !earlyRequest.isPending(),
+                "Cancelled request is still pending.");
+        // by now both long requests have moved down out of the top level
+        for (long tick = START + 1; tick <= START + 299990; tick++)
+            wheel.advance(tick * RESOLUTION);
+        Checks.check(cascadedRequest.isPending(), "Request was lost while cascading.");
+        cascadedRequest.cancel();
+        cascadedRequest.cancel();
+        Checks.check(!cascadedRequest.isPending(), "Cancelled request is still pending.");
+        for (long tick = START + 299991; tick <= START + 300100; tick++)
+            wheel.advance(tick * RESOLUTION);
+        Checks.checkEquals(1, target.delivered.size(), "Deliveries after cancelling");
+        Checks.check(target.delivered.get(0) == kept, "The wrong request was delivered.");
+        Checks.check(!keptRequest.isCancelled(), "Delivered request reports being cancelled.");
+        // cancelling after delivery changes nothing else
+        keptRequest.cancel();
+        Checks.check(keptRequest.isCancelled() && !keptRequest.isPending(),
+                "Cancelling a delivered request failed.");
+    }
+
+    private static void repeat() {
+        TimingWheel wheel = new TimingWheel(RESOLUTION);
+        Target target = new Target();
+        Msg message = new Msg(Timer.Action.PRINT);
+        ScheduledRequest request = wheel.schedule(target, message, START * RESOLUTION,
+                10 * RESOLUTION, 10 * RESOLUTION);
+        for (long tick = START + 1; tick <= START + 100; tick++) {
+            wheel.advance(tick * RESOLUTION);
+            int expected = (tick - START) % 10 == 0 ? 1 : 0;
+            Checks.checkEquals(expected, target.delivered.size(), "Deliveries on tick " + tick);
+            target.delivered.clear();
+        }
+        // missed periods are coalesced into one delivery
+        wheel.advance((START + 135) * RESOLUTION);
+        Checks.checkEquals(1, target.delivered.size(), "Deliveries after a long advance");
+        Checks.check(target.delivered.get(0) == message, "A different message was delivered.");
+        target.delivered.clear();
+        // and the original schedule continues
+        for (long tick = START + 136; tick <= START + 140; tick++) {
+            wheel.advance(tick * RESOLUTION);
+            int expected = tick == START + 140 ? 1 : 0;
+            Checks.checkEquals(expected, target.delivered.size(), "Deliveries on tick " + tick);
+            target.delivered.clear();
+        }
+        request.cancel();
+        for (long tick = START + 141; tick <= START + 300; tick++)
+            wheel.advance(tick * RESOLUTION);
+        Checks.checkEquals(0, target.delivered.size(), "Deliveries after cancelling");
+    }
+
+    private static int indexOf(Msg[] messages, Msg message) {
+        for (int i = 0; i < messages.length; i++) {
+            if (messages[i] == message)
+                return i;
+        }
+        throw new AssertionError("An unknown message was delivered.");
+    }
+}